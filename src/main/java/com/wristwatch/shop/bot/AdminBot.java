@@ -1,5 +1,6 @@
 package com.wristwatch.shop.bot;
 
+import com.wristwatch.shop.config.RoutingContext;
 import com.wristwatch.shop.dto.*;
 import com.wristwatch.shop.entity.Order;
 import com.wristwatch.shop.service.*;
@@ -40,19 +41,22 @@ public class AdminBot extends TelegramLongPollingBot {
     private final AppUserService appUserService;
     private final StatisticsService statisticsService;
     private final TelegramFileService telegramFileService;
+    private final PaymentProofSimilarityService paymentProofSimilarityService;
 
     // Admin session storage
     private final Map<Long, AdminSession> adminSessions = new ConcurrentHashMap<>();
 
     public AdminBot(CategoryService categoryService, ProductService productService,
                     OrderService orderService, AppUserService appUserService,
-                    StatisticsService statisticsService, TelegramFileService telegramFileService) {
+                    StatisticsService statisticsService, TelegramFileService telegramFileService,
+                    PaymentProofSimilarityService paymentProofSimilarityService) {
         this.categoryService = categoryService;
         this.productService = productService;
         this.orderService = orderService;
         this.appUserService = appUserService;
         this.statisticsService = statisticsService;
         this.telegramFileService = telegramFileService;
+        this.paymentProofSimilarityService = paymentProofSimilarityService;
     }
 
     @Override
@@ -69,12 +73,16 @@ public class AdminBot extends TelegramLongPollingBot {
     public void onUpdateReceived(Update update) {
         try {
             if (update.hasMessage()) {
+                RoutingContext.bind("tg:" + update.getMessage().getFrom().getId());
                 handleMessage(update.getMessage());
             } else if (update.hasCallbackQuery()) {
+                RoutingContext.bind("tg:" + update.getCallbackQuery().getFrom().getId());
                 handleCallbackQuery(update);
             }
         } catch (Exception e) {
             log.error("Error processing admin update", e);
+        } finally {
+            RoutingContext.clear();
         }
     }
 
@@ -191,6 +199,9 @@ public class AdminBot extends TelegramLongPollingBot {
             case "top_products":
                 showTopProducts(chatId);
                 break;
+            case "stats_cohorts":
+                showCohortStats(chatId);
+                break;
         }
     }
 
@@ -305,6 +316,11 @@ public class AdminBot extends TelegramLongPollingBot {
         topBtn.setCallbackData("top_products");
         rows.add(Arrays.asList(topBtn));
 
+        InlineKeyboardButton cohortsBtn = new InlineKeyboardButton();
+        cohortsBtn.setText("👥 Repeat Customers");
+        cohortsBtn.setCallbackData("stats_cohorts");
+        rows.add(Arrays.asList(cohortsBtn));
+
         keyboard.setKeyboard(rows);
         message.setReplyMarkup(keyboard);
         execute(message);
@@ -400,6 +416,20 @@ public class AdminBot extends TelegramLongPollingBot {
             orderText.append(" = $").append(item.getTotalPrice()).append("\n");
         }
 
+        if (order.isHasPaymentProof()) {
+            List<SimilarPaymentProofDto> similar = paymentProofSimilarityService.findSimilarForOrder(orderId);
+            if (!similar.isEmpty()) {
+                orderText.append("\n⚠️ Payment proof looks like an earlier upload:\n");
+                for (SimilarPaymentProofDto match : similar) {
+                    orderText.append("• Order #").append(match.getOrderId())
+                            .append(" (").append(match.getUploadedAt() != null ? match.getUploadedAt().toLocalDate() : "unknown date")
+                            .append(match.isIdentical() ? ", identical file" : ", difference " + match.getDistance() + "/64")
+                            .append(match.isVerified() ? ", verified" : "")
+                            .append(")\n");
+                }
+            }
+        }
+
         SendMessage message = new SendMessage();
         message.setChatId(chatId);
         message.setText(orderText.toString());
@@ -433,8 +463,8 @@ public class AdminBot extends TelegramLongPollingBot {
         try {
             String paymentProofPath = orderService.getPaymentProofPath(orderId);
             if (paymentProofPath != null && !paymentProofPath.isEmpty()) {
-                File photoFile = new File(paymentProofPath);
-                if (photoFile.exists()) {
+                File photoFile = telegramFileService.localFile(paymentProofPath);
+                if (photoFile != null) {
                     SendPhoto photo = new SendPhoto();
                     photo.setChatId(chatId);
                     photo.setPhoto(new InputFile(photoFile));
@@ -530,6 +560,34 @@ public class AdminBot extends TelegramLongPollingBot {
         sendMessage(chatId, statsText.toString());
     }
 
+    private void showCohortStats(Long chatId) throws TelegramApiException {
+        CohortReportDto report = statisticsService.getCohortReport();
+
+        if (report.getCohorts().isEmpty()) {
+            sendMessage(chatId, "👥 No customer data available yet.");
+            return;
+        }
+
+        StringBuilder statsText = new StringBuilder("👥 Repeat Customers\n\n");
+        statsText.append("Customers: ").append(report.getTotalCustomers()).append("\n");
+        statsText.append("Repeat buyers: ").append(report.getRepeatCustomers())
+                .append(" (").append(report.getRepeatPurchaseRate()).append("%)\n");
+        statsText.append("Avg. lifetime value: $").append(report.getAverageLifetimeValue()).append("\n\n");
+        statsText.append("By first purchase month:\n");
+
+        int shown = 0;
+        for (CohortReportDto.CohortDto cohort : report.getCohorts()) {
+            statsText.append(cohort.getCohortMonth().getYear()).append("-")
+                    .append(String.format("%02d", cohort.getCohortMonth().getMonthValue())).append(": ")
+                    .append(cohort.getCustomers()).append(" customers, ")
+                    .append(cohort.getRepeatPurchaseRate()).append("% repeat, LTV $")
+                    .append(cohort.getAverageLifetimeValue()).append("\n");
+            if (++shown >= 12) break; // Show the last 12 months
+        }
+
+        sendMessage(chatId, statsText.toString());
+    }
+
     private void handleAdminInput(Long chatId, Long userId, String text, AdminSession session) throws TelegramApiException {
         if (session.getCurrentAction() == AdminAction.ADD_PRODUCT) {
             handleAddProductInput(chatId, userId, text, session);
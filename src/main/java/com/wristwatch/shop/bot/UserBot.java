@@ -1,5 +1,6 @@
 package com.wristwatch.shop.bot;
 
+import com.wristwatch.shop.config.RoutingContext;
 import com.wristwatch.shop.dto.*;
 import com.wristwatch.shop.entity.Order;
 import com.wristwatch.shop.event.PaymentVerificationEvent;
@@ -22,6 +23,7 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.Keyboard
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -44,18 +46,20 @@ public class UserBot extends TelegramLongPollingBot {
     private final OrderService orderService;
     private final AppUserService appUserService;
     private final TelegramFileService telegramFileService;
+    private final DistinctCountService distinctCountService;
 
     // User session storage
     private final Map<Long, UserSession> userSessions = new ConcurrentHashMap<>();
 
     public UserBot(CategoryService categoryService, ProductService productService,
                    OrderService orderService, AppUserService appUserService,
-                   TelegramFileService telegramFileService) {
+                   TelegramFileService telegramFileService, DistinctCountService distinctCountService) {
         this.categoryService = categoryService;
         this.productService = productService;
         this.orderService = orderService;
         this.appUserService = appUserService;
         this.telegramFileService = telegramFileService;
+        this.distinctCountService = distinctCountService;
     }
 
     @Override
@@ -72,12 +76,18 @@ public class UserBot extends TelegramLongPollingBot {
     public void onUpdateReceived(Update update) {
         try {
             if (update.hasMessage()) {
+                RoutingContext.bind("tg:" + update.getMessage().getFrom().getId());
+                distinctCountService.recordVisitor(update.getMessage().getFrom().getId());
                 handleMessage(update.getMessage());
             } else if (update.hasCallbackQuery()) {
+                RoutingContext.bind("tg:" + update.getCallbackQuery().getFrom().getId());
+                distinctCountService.recordVisitor(update.getCallbackQuery().getFrom().getId());
                 handleCallbackQuery(update);
             }
         } catch (Exception e) {
             log.error("Error processing update", e);
+        } finally {
+            RoutingContext.clear();
         }
     }
 
@@ -191,6 +201,24 @@ public class UserBot extends TelegramLongPollingBot {
                 Long backCategoryId = Long.parseLong(parts[1]);
                 showProductsInCategory(chatId, backCategoryId);
                 break;
+            case "filter":
+                showFilterMenu(chatId, userId);
+                break;
+            case "filter_category":
+                toggleCategoryFilter(chatId, userId, Long.parseLong(parts[1]));
+                break;
+            case "filter_price":
+                togglePriceFilter(chatId, userId, ProductFacetIndex.PriceBand.valueOf(parts[1]));
+                break;
+            case "filter_stock":
+                toggleStockFilter(chatId, userId);
+                break;
+            case "filter_clear":
+                clearFilters(chatId, userId);
+                break;
+            case "filter_show":
+                showFilteredProducts(chatId, userId);
+                break;
         }
     }
 
@@ -238,6 +266,11 @@ public class UserBot extends TelegramLongPollingBot {
             rows.add(Arrays.asList(button));
         }
 
+        InlineKeyboardButton filterButton = new InlineKeyboardButton();
+        filterButton.setText("🔎 Filter Watches");
+        filterButton.setCallbackData("filter");
+        rows.add(Arrays.asList(filterButton));
+
         keyboard.setKeyboard(rows);
         message.setReplyMarkup(keyboard);
         execute(message);
@@ -280,6 +313,115 @@ public class UserBot extends TelegramLongPollingBot {
         execute(message);
     }
 
+    private void showFilterMenu(Long chatId, Long userId) throws TelegramApiException {
+        UserSession session = userSessions.computeIfAbsent(userId, k -> new UserSession());
+        ProductFacetsDto facets = productService.getFacetedProducts(
+                session.getFilterCategoryId(), session.getFilterPriceBand(), session.isFilterInStockOnly());
+
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId);
+        message.setText("🔎 Filter Watches\n\nTap a filter to toggle it. Numbers show how many watches match.");
+
+        InlineKeyboardMarkup keyboard = new InlineKeyboardMarkup();
+        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
+
+        for (ProductFacetIndex.PriceBand band : ProductFacetIndex.PriceBand.values()) {
+            InlineKeyboardButton button = new InlineKeyboardButton();
+            String mark = band == session.getFilterPriceBand() ? "✅ " : "";
+            button.setText(mark + "💰 " + band.getLabel() + " (" + facets.getPriceBandCounts().get(band.name()) + ")");
+            button.setCallbackData("filter_price:" + band.name());
+            rows.add(Arrays.asList(button));
+        }
+
+        for (CategoryDto category : categoryService.getAllCategories()) {
+            Long count = facets.getCategoryCounts().getOrDefault(category.getId(), 0L);
+            InlineKeyboardButton button = new InlineKeyboardButton();
+            String mark = category.getId().equals(session.getFilterCategoryId()) ? "✅ " : "";
+            button.setText(mark + "📂 " + category.getName() + " (" + count + ")");
+            button.setCallbackData("filter_category:" + category.getId());
+            rows.add(Arrays.asList(button));
+        }
+
+        InlineKeyboardButton stockButton = new InlineKeyboardButton();
+        String stockMark = session.isFilterInStockOnly() ? "✅ " : "";
+        stockButton.setText(stockMark + "📦 In stock only (" + facets.getInStockCount() + ")");
+        stockButton.setCallbackData("filter_stock");
+        rows.add(Arrays.asList(stockButton));
+
+        InlineKeyboardButton showButton = new InlineKeyboardButton();
+        showButton.setText("👀 Show " + facets.getTotalCount() + " watches");
+        showButton.setCallbackData("filter_show");
+
+        InlineKeyboardButton clearButton = new InlineKeyboardButton();
+        clearButton.setText("🔄 Clear");
+        clearButton.setCallbackData("filter_clear");
+        rows.add(Arrays.asList(showButton, clearButton));
+
+        keyboard.setKeyboard(rows);
+        message.setReplyMarkup(keyboard);
+        execute(message);
+    }
+
+    private void toggleCategoryFilter(Long chatId, Long userId, Long categoryId) throws TelegramApiException {
+        UserSession session = userSessions.computeIfAbsent(userId, k -> new UserSession());
+        session.setFilterCategoryId(categoryId.equals(session.getFilterCategoryId()) ? null : categoryId);
+        showFilterMenu(chatId, userId);
+    }
+
+    private void togglePriceFilter(Long chatId, Long userId, ProductFacetIndex.PriceBand band) throws TelegramApiException {
+        UserSession session = userSessions.computeIfAbsent(userId, k -> new UserSession());
+        session.setFilterPriceBand(band == session.getFilterPriceBand() ? null : band);
+        showFilterMenu(chatId, userId);
+    }
+
+    private void toggleStockFilter(Long chatId, Long userId) throws TelegramApiException {
+        UserSession session = userSessions.computeIfAbsent(userId, k -> new UserSession());
+        session.setFilterInStockOnly(!session.isFilterInStockOnly());
+        showFilterMenu(chatId, userId);
+    }
+
+    private void clearFilters(Long chatId, Long userId) throws TelegramApiException {
+        UserSession session = userSessions.computeIfAbsent(userId, k -> new UserSession());
+        session.setFilterCategoryId(null);
+        session.setFilterPriceBand(null);
+        session.setFilterInStockOnly(false);
+        showFilterMenu(chatId, userId);
+    }
+
+    private void showFilteredProducts(Long chatId, Long userId) throws TelegramApiException {
+        UserSession session = userSessions.computeIfAbsent(userId, k -> new UserSession());
+        ProductFacetsDto facets = productService.getFacetedProducts(
+                session.getFilterCategoryId(), session.getFilterPriceBand(), session.isFilterInStockOnly());
+
+        if (facets.getProducts().isEmpty()) {
+            sendMessage(chatId, "No watches match your filters. Try removing some of them.");
+            return;
+        }
+
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId);
+        message.setText("Watches matching your filters (" + facets.getTotalCount() + "):");
+
+        InlineKeyboardMarkup keyboard = new InlineKeyboardMarkup();
+        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
+
+        for (ProductDto product : facets.getProducts()) {
+            InlineKeyboardButton button = new InlineKeyboardButton();
+            button.setText(product.getName() + " - $" + product.getPrice());
+            button.setCallbackData("product:" + product.getId());
+            rows.add(Arrays.asList(button));
+        }
+
+        InlineKeyboardButton backButton = new InlineKeyboardButton();
+        backButton.setText("⬅️ Back to Filters");
+        backButton.setCallbackData("filter");
+        rows.add(Arrays.asList(backButton));
+
+        keyboard.setKeyboard(rows);
+        message.setReplyMarkup(keyboard);
+        execute(message);
+    }
+
     private void showProductDetails(Long chatId, Long productId) throws TelegramApiException {
         ProductDto product = productService.getProductById(productId);
 
@@ -289,11 +431,20 @@ public class UserBot extends TelegramLongPollingBot {
                 "📂 Category: " + product.getCategoryName() + "\n\n" +
                 "📝 Description:\n" + (product.getDescription() != null ? product.getDescription() : "No description available");
 
+        File imageFile = null;
         if (product.getImageUrl() != null && !product.getImageUrl().isEmpty()) {
+            try {
+                imageFile = telegramFileService.localFile(product.getImageUrl());
+            } catch (IOException e) {
+                log.warn("Could not load image for product {}", productId, e);
+            }
+        }
+
+        if (imageFile != null) {
             // Send photo with caption
             SendPhoto photo = new SendPhoto();
             photo.setChatId(chatId);
-            photo.setPhoto(new InputFile(new File(product.getImageUrl())));
+            photo.setPhoto(new InputFile(imageFile));
             photo.setCaption(productText);
 
             InlineKeyboardMarkup keyboard = createProductKeyboard(productId, product.getCategoryId());
@@ -527,7 +678,8 @@ public class UserBot extends TelegramLongPollingBot {
             String filePath = telegramFileService.downloadAndStorePhoto(message, this, "payment-proofs");
 
             Long orderId = session.getPendingOrderId();
-            String fileName = "payment_proof_" + orderId + "_" + System.currentTimeMillis() + ".jpg";
+            // Blob file names resolve through /api/payment-proofs/file/{filename}
+            String fileName = new File(filePath).getName();
 
             orderService.uploadPaymentProof(orderId, filePath, fileName);
 
@@ -1,6 +1,7 @@
 package com.wristwatch.shop.bot;
 
 import com.wristwatch.shop.dto.CartItemDto;
+import com.wristwatch.shop.service.ProductFacetIndex;
 import lombok.Data;
 
 import java.util.ArrayList;
@@ -17,6 +18,9 @@ public class UserSession {
     private String deliveryAddress;
     private boolean awaitingPaymentProof = false;
     private Long pendingOrderId;
+    private Long filterCategoryId;
+    private ProductFacetIndex.PriceBand filterPriceBand;
+    private boolean filterInStockOnly = false;
 
     public void setCheckoutStep(com.wristwatch.shop.bot.CheckoutStep checkoutStep) {
         this.checkoutStep = checkoutStep;
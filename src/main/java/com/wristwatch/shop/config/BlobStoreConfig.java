@@ -0,0 +1,102 @@
+package com.wristwatch.shop.config;
+
+import com.wristwatch.shop.service.BlobStore;
+import com.wristwatch.shop.service.CachingBlobStore;
+import com.wristwatch.shop.service.LocalBlobStore;
+import com.wristwatch.shop.service.S3BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.nio.file.Paths;
+
+/**
+ * Chooses where blobs live with {@code storage.backend}: {@code local} (the default) keeps them
+ * under the upload directory, {@code s3} stores them in an S3-compatible bucket and keeps a
+ * size-bounded copy of recently used files in the same local directory.
+ */
+@Configuration
+public class BlobStoreConfig {
+
+    @Value("${file.upload.dir:./uploads}")
+    private String uploadDir;
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "local", matchIfMissing = true)
+    public BlobStore localBlobStore() {
+        return new LocalBlobStore(blobRoot());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public BlobStore s3BlobStore(S3Client s3Client, S3Presigner s3Presigner,
+                                 @Value("${storage.s3.bucket}") String bucket,
+                                 @Value("${storage.s3.prefix:}") String prefix,
+                                 @Value("${storage.s3.part-size:8MB}") DataSize partSize,
+                                 @Value("${storage.cache.max-size:2GB}") DataSize cacheSize,
+                                 @Value("${storage.cache.pin-duration:5m}") Duration pinDuration) {
+        Path root = blobRoot();
+        S3BlobStore remote = new S3BlobStore(s3Client, s3Presigner, bucket, prefix,
+                (int) partSize.toBytes(), root.resolve("tmp"));
+        return new CachingBlobStore(remote, root, cacheSize.toBytes(), pinDuration);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public S3Client s3Client(@Value("${storage.s3.region:us-east-1}") String region,
+                             @Value("${storage.s3.endpoint:}") String endpoint,
+                             @Value("${storage.s3.access-key:}") String accessKey,
+                             @Value("${storage.s3.secret-key:}") String secretKey) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials(accessKey, secretKey));
+        if (StringUtils.hasText(endpoint)) {
+            // MinIO and most other S3-compatible servers only support path-style URLs
+            builder.endpointOverride(URI.create(endpoint))
+                    .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build());
+        }
+        return builder.build();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public S3Presigner s3Presigner(@Value("${storage.s3.region:us-east-1}") String region,
+                                   @Value("${storage.s3.endpoint:}") String endpoint,
+                                   @Value("${storage.s3.access-key:}") String accessKey,
+                                   @Value("${storage.s3.secret-key:}") String secretKey) {
+        S3Presigner.Builder builder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials(accessKey, secretKey));
+        if (StringUtils.hasText(endpoint)) {
+            builder.endpointOverride(URI.create(endpoint))
+                    .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build());
+        }
+        return builder.build();
+    }
+
+    private AwsCredentialsProvider credentials(String accessKey, String secretKey) {
+        if (StringUtils.hasText(accessKey)) {
+            return StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        }
+        return DefaultCredentialsProvider.create();
+    }
+
+    private Path blobRoot() {
+        return Paths.get(uploadDir, "blobs");
+    }
+}
@@ -0,0 +1,115 @@
+package com.wristwatch.shop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single data source with a {@link ReplicaRoutingDataSource} when
+ * {@code datasource.replicas.urls} lists one or more read replicas. Replicas use the primary's
+ * credentials unless {@code datasource.replicas.username}/{@code password} are set.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replicas.urls")
+public class DataSourceRoutingConfig {
+
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    /**
+     * The primary pool, with the usual {@code spring.datasource.hikari.*} settings applied.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties properties,
+                                                             Environment environment,
+                                                             @Value("${datasource.replicas.urls}") List<String> urls,
+                                                             @Value("${datasource.replicas.username:}") String username,
+                                                             @Value("${datasource.replicas.password:}") String password,
+                                                             @Value("${datasource.replicas.max-lag:2s}") Duration maxLag,
+                                                             @Value("${datasource.replicas.stickiness:5s}") Duration stickiness,
+                                                             @Value("${datasource.replicas.check-interval:5000}") long checkIntervalMs) {
+        Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String name = "replica-" + (i + 1);
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(urls.get(i).trim())
+                    .username(StringUtils.hasText(username) ? username : properties.determineUsername())
+                    .password(StringUtils.hasText(password) ? password : properties.determinePassword())
+                    .build();
+            // Replicas take the same pool settings as the primary
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName(name);
+            replica.setReadOnly(true);
+            replicas.put(name, replica);
+        }
+
+        // Initialized by the container, which also starts the lag checks
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLag, stickiness,
+                Duration.ofMillis(checkIntervalMs));
+    }
+
+    /**
+     * Defers fetching the connection until the first statement, after the transaction's
+     * read-only flag is known.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> routingContextFilter() {
+        OncePerRequestFilter filter = new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain chain) throws ServletException, IOException {
+                String clientId = request.getHeader(CLIENT_ID_HEADER);
+                RoutingContext.bind(StringUtils.hasText(clientId) ? "client:" + clientId : "ip:" + request.getRemoteAddr());
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    RoutingContext.clear();
+                }
+            }
+        };
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
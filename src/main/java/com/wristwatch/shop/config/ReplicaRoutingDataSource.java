@@ -0,0 +1,245 @@
+package com.wristwatch.shop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends read-only transactions to a healthy replica, round robin, and everything else to the
+ * primary. A replica is used only while it is reachable and no more than {@code maxLag} behind
+ * the primary, as measured by a periodic WAL position check. The check runs on its own thread
+ * so long scheduled jobs cannot hold it up while a replica falls behind. After a client's
+ * read-write transaction commits, that client's reads stay on the primary for the stickiness
+ * window so it always sees its own writes.
+ * <p>
+ * The routing key is read when a connection is actually fetched, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}; by then the
+ * transaction's read-only flag has been set.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    static final String PRIMARY = "primary";
+
+    private static final String LAG_SQL =
+            "SELECT pg_wal_lsn_diff(CAST(? AS pg_lsn), pg_last_wal_replay_lsn()), " +
+            "EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())";
+
+    private final HikariDataSource primary;
+    private final Map<String, HikariDataSource> replicas;
+    private final Duration maxLag;
+    private final long stickinessMillis;
+    private final Duration checkInterval;
+    private final ScheduledExecutorService lagChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-lag-check");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, ReplicaState> states = new ConcurrentHashMap<>();
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final AtomicLong writeRoutes = new AtomicLong();
+    private final AtomicLong nonTransactional = new AtomicLong();
+    private final AtomicLong stickyReads = new AtomicLong();
+    private final AtomicLong fallbackReads = new AtomicLong();
+
+    private static class ReplicaState {
+        volatile boolean healthy;
+        volatile long lagBytes = -1;
+        volatile double lagSeconds = -1;
+        volatile String error;
+        final AtomicLong reads = new AtomicLong();
+    }
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, Map<String, HikariDataSource> replicas,
+                                    Duration maxLag, Duration stickiness, Duration checkInterval) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.maxLag = maxLag;
+        this.stickinessMillis = stickiness.toMillis();
+        this.checkInterval = checkInterval;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        targets.putAll(replicas);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        replicas.keySet().forEach(name -> states.put(name, new ReplicaState()));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        lagChecker.scheduleWithFixedDelay(this::checkReplicasQuietly, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean inTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+        if (!inTransaction || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (inTransaction) {
+                writeRoutes.incrementAndGet();
+                markStickyAfterCommit();
+            } else {
+                nonTransactional.incrementAndGet();
+            }
+            return PRIMARY;
+        }
+
+        String clientKey = RoutingContext.currentClientKey();
+        if (clientKey != null) {
+            Long until = stickyUntil.get(clientKey);
+            if (until != null && until > System.currentTimeMillis()) {
+                stickyReads.incrementAndGet();
+                return PRIMARY;
+            }
+        }
+
+        List<String> healthy = new ArrayList<>(replicas.size());
+        for (String name : replicas.keySet()) {
+            if (states.get(name).healthy) {
+                healthy.add(name);
+            }
+        }
+        if (healthy.isEmpty()) {
+            fallbackReads.incrementAndGet();
+            return PRIMARY;
+        }
+
+        String replica = healthy.get(Math.floorMod(nextReplica.getAndIncrement(), healthy.size()));
+        states.get(replica).reads.incrementAndGet();
+        return replica;
+    }
+
+    /**
+     * Measures each replica's lag against the primary's current WAL position.
+     */
+    public void checkReplicas() {
+        String primaryLsn;
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT CAST(pg_current_wal_lsn() AS text)")) {
+            rs.next();
+            primaryLsn = rs.getString(1);
+        } catch (SQLException e) {
+            log.warn("Could not read the primary WAL position; keeping replica states", e);
+            return;
+        }
+
+        replicas.forEach((name, replica) -> {
+            ReplicaState state = states.get(name);
+            try (Connection connection = replica.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(LAG_SQL)) {
+                statement.setString(1, primaryLsn);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    long lagBytes = Math.max(0, rs.getLong(1));
+                    double lagSeconds = rs.getObject(2) != null ? rs.getDouble(2) : 0;
+                    // An idle primary keeps the replay timestamp old, so time lag only counts while behind
+                    boolean healthy = lagBytes == 0 || lagSeconds * 1000 <= maxLag.toMillis();
+                    if (healthy != state.healthy) {
+                        log.info("Replica {} is now {} (lag {} bytes, {} s)", name,
+                                healthy ? "in rotation" : "out of rotation", lagBytes, lagSeconds);
+                    }
+                    state.lagBytes = lagBytes;
+                    state.lagSeconds = lagBytes == 0 ? 0 : lagSeconds;
+                    state.error = null;
+                    state.healthy = healthy;
+                }
+            } catch (SQLException e) {
+                if (state.healthy) {
+                    log.warn("Replica {} is unreachable, reading from the primary", name, e);
+                }
+                state.healthy = false;
+                state.error = e.getMessage();
+            }
+        });
+
+        long now = System.currentTimeMillis();
+        stickyUntil.values().removeIf(until -> until <= now);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long replicaReads = 0;
+        Map<String, Object> replicaMetrics = new LinkedHashMap<>();
+        for (Map.Entry<String, ReplicaState> entry : states.entrySet()) {
+            ReplicaState state = entry.getValue();
+            replicaReads += state.reads.get();
+            Map<String, Object> replica = new LinkedHashMap<>();
+            replica.put("healthy", state.healthy);
+            replica.put("reads", state.reads.get());
+            replica.put("lagBytes", state.lagBytes);
+            replica.put("lagSeconds", state.lagSeconds);
+            replica.put("error", state.error);
+            replicaMetrics.put(entry.getKey(), replica);
+        }
+
+        long primaryReads = stickyReads.get() + fallbackReads.get();
+        long totalReads = replicaReads + primaryReads;
+        metrics.put("writeTransactions", writeRoutes.get());
+        metrics.put("nonTransactional", nonTransactional.get());
+        metrics.put("replicaReads", replicaReads);
+        metrics.put("primaryReads", primaryReads);
+        metrics.put("stickyReads", stickyReads.get());
+        metrics.put("lagFallbackReads", fallbackReads.get());
+        metrics.put("replicaReadShare", totalReads > 0 ? (double) replicaReads / totalReads : 0.0);
+        metrics.put("stickyClients", stickyUntil.size());
+        metrics.put("replicas", replicaMetrics);
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        lagChecker.shutdownNow();
+        // The primary is a bean of its own and closed by the container
+        replicas.values().forEach(HikariDataSource::close);
+    }
+
+    /**
+     * An exception escaping a scheduled task would cancel every later check.
+     */
+    private void checkReplicasQuietly() {
+        try {
+            checkReplicas();
+        } catch (RuntimeException e) {
+            log.error("Replica lag check failed", e);
+        }
+    }
+
+    private void markStickyAfterCommit() {
+        String clientKey = RoutingContext.currentClientKey();
+        if (clientKey == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stickyUntil.put(clientKey, System.currentTimeMillis() + stickinessMillis);
+            }
+        });
+    }
+}
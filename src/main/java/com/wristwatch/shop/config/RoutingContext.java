@@ -0,0 +1,26 @@
+package com.wristwatch.shop.config;
+
+/**
+ * Identifies who the current thread is working for, so read-only transactions can be kept on
+ * the primary for a while after that client's own writes. Bots bind the Telegram user id;
+ * HTTP requests bind a client id header or the remote address.
+ */
+public final class RoutingContext {
+
+    private static final ThreadLocal<String> CLIENT_KEY = new ThreadLocal<>();
+
+    private RoutingContext() {
+    }
+
+    public static void bind(String clientKey) {
+        CLIENT_KEY.set(clientKey);
+    }
+
+    public static String currentClientKey() {
+        return CLIENT_KEY.get();
+    }
+
+    public static void clear() {
+        CLIENT_KEY.remove();
+    }
+}
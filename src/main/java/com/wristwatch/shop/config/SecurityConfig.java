@@ -19,6 +19,7 @@ public class SecurityConfig {
                 .requestMatchers("/api/products/**").permitAll()
                 .requestMatchers("/api/orders/**").permitAll()
                 .requestMatchers("/api/payment-proofs/file/**").permitAll()
+                .requestMatchers("/api/files/**").permitAll()
                 .requestMatchers("/api/admin/**").permitAll() // In production, add proper authentication
                 .requestMatchers("/api/statistics/**").permitAll() // In production, add proper authentication
                 .anyRequest().authenticated()
@@ -1,17 +1,31 @@
 package com.wristwatch.shop.controller;
 
+import com.wristwatch.shop.config.ReplicaRoutingDataSource;
+import com.wristwatch.shop.dto.CatalogImportReportDto;
 import com.wristwatch.shop.dto.CategoryDto;
 import com.wristwatch.shop.dto.ProductCreateRequest;
 import com.wristwatch.shop.dto.ProductDto;
+import com.wristwatch.shop.service.CatalogExportService;
+import com.wristwatch.shop.service.CatalogImportService;
 import com.wristwatch.shop.service.CategoryService;
+import com.wristwatch.shop.service.LiveDashboardService;
 import com.wristwatch.shop.service.ProductService;
+import com.wristwatch.shop.service.UploadLifecycleService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -20,6 +34,11 @@ public class AdminController {
     
     private final ProductService productService;
     private final CategoryService categoryService;
+    private final CatalogImportService catalogImportService;
+    private final CatalogExportService catalogExportService;
+    private final LiveDashboardService liveDashboardService;
+    private final UploadLifecycleService uploadLifecycleService;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource;
     
     // Product Management
     @PostMapping("/products")
@@ -59,6 +78,36 @@ public class AdminController {
         return ResponseEntity.ok(products);
     }
     
+    @PostMapping("/products/import")
+    public ResponseEntity<CatalogImportReportDto> importProducts(HttpServletRequest request,
+                                                                 @RequestParam(defaultValue = "csv") String format) {
+        try {
+            CatalogImportService.Format importFormat = CatalogImportService.Format.valueOf(format.toUpperCase());
+            CatalogImportReportDto report = catalogImportService.importCatalog(request.getInputStream(), importFormat);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    @GetMapping("/products/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "csv") String format) {
+        try {
+            CatalogImportService.Format exportFormat = CatalogImportService.Format.valueOf(format.toUpperCase());
+            boolean csv = exportFormat == CatalogImportService.Format.CSV;
+            StreamingResponseBody body = output -> catalogExportService.exportCatalog(output, exportFormat);
+            return ResponseEntity.ok()
+                    .contentType(csv ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"products." + (csv ? "csv" : "jsonl") + "\"")
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     // Category Management
     @PostMapping("/categories")
     public ResponseEntity<CategoryDto> createCategory(@Valid @RequestBody CategoryDto categoryDto) {
@@ -96,4 +145,31 @@ public class AdminController {
         List<CategoryDto> categories = categoryService.getAllCategories();
         return ResponseEntity.ok(categories);
     }
+    
+    // Live Dashboard
+    @GetMapping(value = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDashboard() {
+        return liveDashboardService.subscribe();
+    }
+    
+    @GetMapping("/dashboard")
+    public ResponseEntity<Map<String, Object>> getDashboard() {
+        return ResponseEntity.ok(liveDashboardService.snapshot());
+    }
+    
+    // Upload Lifecycle
+    @PostMapping("/uploads/lifecycle/run")
+    public ResponseEntity<Map<String, Object>> runUploadLifecycle() {
+        return ResponseEntity.ok(uploadLifecycleService.run());
+    }
+    
+    // Database Routing
+    @GetMapping("/datasource/routing")
+    public ResponseEntity<Map<String, Object>> getDataSourceRouting() {
+        ReplicaRoutingDataSource routing = replicaRoutingDataSource.getIfAvailable();
+        if (routing == null) {
+            return ResponseEntity.ok(Map.of("replicasConfigured", false));
+        }
+        return ResponseEntity.ok(routing.getMetrics());
+    }
 }
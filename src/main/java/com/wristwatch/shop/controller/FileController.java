@@ -0,0 +1,71 @@
+package com.wristwatch.shop.controller;
+
+import com.wristwatch.shop.repository.ProductRepository;
+import com.wristwatch.shop.service.BlobStorageService;
+import com.wristwatch.shop.service.FileServingService;
+import com.wristwatch.shop.service.HotFileCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/files")
+@RequiredArgsConstructor
+public class FileController {
+    
+    private final BlobStorageService blobStorageService;
+    private final FileServingService fileServingService;
+    private final HotFileCache hotFileCache;
+    private final ProductRepository productRepository;
+    
+    @Value("${storage.presigned-redirect:false}")
+    private boolean presignedRedirect;
+    
+    @Value("${storage.presigned-ttl:15m}")
+    private Duration presignedTtl;
+    
+    /**
+     * Serves a product image or one of its variants. The name is derived from the content, so
+     * responses are cached publicly forever and revalidation never reads the disk. Any other
+     * blob, such as a payment proof, is not found here and is only served by the proof endpoint.
+     * With {@code storage.presigned-redirect} the client is sent to the object store instead.
+     */
+    @GetMapping("/blobs/{fileName:.+}")
+    public void getBlob(@PathVariable String fileName,
+                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path path = blobStorageService.resolveServableFileName(fileName);
+        // Servable names always start with the 64 character content hash
+        if (path == null || !productRepository.existsByImageHashAndIsActiveTrue(fileName.substring(0, 64))) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        
+        if (presignedRedirect) {
+            Optional<URL> url = blobStorageService.presign(path, presignedTtl);
+            if (url.isPresent()) {
+                response.sendRedirect(url.get().toString());
+                return;
+            }
+        }
+        
+        int dot = fileName.lastIndexOf('.');
+        String etag = "\"" + (dot > 0 ? fileName.substring(0, dot) : fileName) + "\"";
+        fileServingService.serve(fileName, () -> blobStorageService.localFile(path), etag,
+                FileServingService.IMMUTABLE, request, response);
+    }
+    
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getHotCacheMetrics() {
+        return ResponseEntity.ok(hotFileCache.getMetrics());
+    }
+}
@@ -2,20 +2,22 @@ package com.wristwatch.shop.controller;
 
 import com.wristwatch.shop.dto.OrderCreateRequest;
 import com.wristwatch.shop.dto.OrderDto;
+import com.wristwatch.shop.exception.UploadRejectedException;
+import com.wristwatch.shop.service.FileStorageService;
 import com.wristwatch.shop.service.OrderService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.validation.Valid;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
 import java.nio.file.Paths;
 import java.util.List;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -23,6 +25,7 @@ import java.util.UUID;
 public class OrderController {
     
     private final OrderService orderService;
+    private final FileStorageService fileStorageService;
     
     @PostMapping
     public ResponseEntity<OrderDto> createOrder(@Valid @RequestBody OrderCreateRequest request) {
@@ -50,32 +53,15 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
     
-    @PostMapping("/{id}/payment-proof")
+    @PostMapping(value = "/{id}/payment-proof", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<String> uploadPaymentProof(@PathVariable Long id, 
                                                     @RequestParam("file") MultipartFile file) {
         try {
-            if (file.isEmpty()) {
-                return ResponseEntity.badRequest().body("File is empty");
-            }
-            
-            // Create uploads directory if it doesn't exist
-            Path uploadDir = Paths.get("uploads/payment-proofs");
-            Files.createDirectories(uploadDir);
-            
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            String extension = originalFilename != null ? 
-                originalFilename.substring(originalFilename.lastIndexOf(".")) : ".jpg";
-            String filename = UUID.randomUUID().toString() + extension;
-            
-            // Save file
-            Path filePath = uploadDir.resolve(filename);
-            Files.copy(file.getInputStream(), filePath);
-            
-            // Save to database
-            orderService.uploadPaymentProof(id, filePath.toString(), filename);
-            
-            return ResponseEntity.ok("Payment proof uploaded successfully");
+            // Store content-addressed; resending the same screenshot reuses the stored file
+            String filePath = fileStorageService.storePaymentProof(file);
+            return savePaymentProof(id, filePath);
+        } catch (UploadRejectedException e) {
+            return ResponseEntity.status(e.getStatus()).body(e.getMessage());
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Failed to upload file: " + e.getMessage());
@@ -83,4 +69,29 @@ public class OrderController {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+    
+    /**
+     * Accepts the image as the raw request body, so it is streamed into the blob store
+     * without being buffered as a multipart part first.
+     */
+    @PostMapping(value = "/{id}/payment-proof", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<String> uploadPaymentProofStream(@PathVariable Long id, HttpServletRequest request) {
+        try (InputStream input = request.getInputStream()) {
+            String filePath = fileStorageService.storePaymentProof(input, request.getContentLengthLong());
+            return savePaymentProof(id, filePath);
+        } catch (UploadRejectedException e) {
+            return ResponseEntity.status(e.getStatus()).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to upload file: " + e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    private ResponseEntity<String> savePaymentProof(Long id, String filePath) {
+        String filename = Paths.get(filePath).getFileName().toString();
+        orderService.uploadPaymentProof(id, filePath, filename);
+        return ResponseEntity.ok("Payment proof uploaded successfully");
+    }
 }
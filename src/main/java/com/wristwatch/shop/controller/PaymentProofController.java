@@ -1,18 +1,21 @@
 package com.wristwatch.shop.controller;
 
 import com.wristwatch.shop.dto.PaymentProofDto;
+import com.wristwatch.shop.dto.SimilarPaymentProofDto;
+import com.wristwatch.shop.service.BlobStorageService;
+import com.wristwatch.shop.service.FileServingService;
 import com.wristwatch.shop.service.PaymentProofService;
+import com.wristwatch.shop.service.PaymentProofSimilarityService;
+import com.wristwatch.shop.service.UploadLifecycleService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.net.MalformedURLException;
+import java.io.IOException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
 
 @RestController
@@ -21,6 +24,10 @@ import java.util.List;
 public class PaymentProofController {
     
     private final PaymentProofService paymentProofService;
+    private final BlobStorageService blobStorageService;
+    private final FileServingService fileServingService;
+    private final PaymentProofSimilarityService paymentProofSimilarityService;
+    private final UploadLifecycleService uploadLifecycleService;
     
     @GetMapping("/order/{orderId}")
     public ResponseEntity<List<PaymentProofDto>> getPaymentProofsByOrder(@PathVariable Long orderId) {
@@ -28,6 +35,11 @@ public class PaymentProofController {
         return ResponseEntity.ok(proofs);
     }
     
+    @GetMapping("/order/{orderId}/similar")
+    public ResponseEntity<List<SimilarPaymentProofDto>> getSimilarPaymentProofs(@PathVariable Long orderId) {
+        return ResponseEntity.ok(paymentProofSimilarityService.findSimilarForOrder(orderId));
+    }
+    
     @GetMapping("/pending")
     public ResponseEntity<List<PaymentProofDto>> getPendingVerificationProofs() {
         List<PaymentProofDto> proofs = paymentProofService.getPendingVerificationProofs();
@@ -35,21 +47,24 @@ public class PaymentProofController {
     }
     
     @GetMapping("/file/{filename:.+}")
-    public ResponseEntity<Resource> getPaymentProofFile(@PathVariable String filename) {
-        try {
-            Path filePath = Paths.get("uploads/payment-proofs").resolve(filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists() && resource.isReadable()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.IMAGE_JPEG)
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (MalformedURLException e) {
-            return ResponseEntity.badRequest().build();
+    public void getPaymentProofFile(@PathVariable String filename,
+                                    HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"");
+        
+        // Content-addressed proofs are named by hash and never change; older uploads live in payment-proofs
+        Path blobPath = blobStorageService.resolveFileName(filename);
+        if (blobPath != null) {
+            String hash = blobStorageService.hashOf(filename);
+            String etag = "\"" + hash + "\"";
+            fileServingService.serve(() -> {
+                // Proofs of long-verified orders only live in their archive bundle
+                Path local = blobStorageService.localFile(blobPath);
+                return local != null ? local : uploadLifecycleService.restoreArchived(hash);
+            }, etag, FileServingService.PRIVATE_IMMUTABLE, request, response);
+            return;
         }
+        
+        fileServingService.serve(() -> blobStorageService.legacyFile("payment-proofs", filename),
+                null, "private, no-cache", request, response);
     }
 }
@@ -1,14 +1,27 @@
 package com.wristwatch.shop.controller;
 
+import com.wristwatch.shop.dto.BulkProductUpdateRequest;
+import com.wristwatch.shop.dto.BulkProductUpdateResultDto;
 import com.wristwatch.shop.dto.ProductCreateRequest;
 import com.wristwatch.shop.dto.ProductDto;
+import com.wristwatch.shop.dto.ProductFacetsDto;
+import com.wristwatch.shop.service.BlobStorageService;
+import com.wristwatch.shop.service.FileServingService;
+import com.wristwatch.shop.service.ImageVariantService;
+import com.wristwatch.shop.service.ProductBulkUpdateService;
+import com.wristwatch.shop.service.ProductFacetIndex;
 import com.wristwatch.shop.service.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
 @RestController
@@ -17,6 +30,10 @@ import java.util.List;
 public class ProductController {
     
     private final ProductService productService;
+    private final ProductBulkUpdateService productBulkUpdateService;
+    private final ImageVariantService imageVariantService;
+    private final BlobStorageService blobStorageService;
+    private final FileServingService fileServingService;
     
     @GetMapping
     public ResponseEntity<List<ProductDto>> getAllProducts() {
@@ -42,6 +59,21 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
     
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacetsDto> getFacetedProducts(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String priceBand,
+            @RequestParam(defaultValue = "false") boolean inStock) {
+        try {
+            ProductFacetIndex.PriceBand band = priceBand != null ?
+                ProductFacetIndex.PriceBand.valueOf(priceBand.toUpperCase()) : null;
+            ProductFacetsDto facets = productService.getFacetedProducts(categoryId, band, inStock);
+            return ResponseEntity.ok(facets);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<ProductDto> getProductById(@PathVariable Long id) {
         try {
@@ -52,6 +84,40 @@ public class ProductController {
         }
     }
     
+    @GetMapping("/{id}/image")
+    public void getProductImage(@PathVariable Long id,
+                                @RequestParam(defaultValue = "card") String variant,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageVariantService.Variant requested;
+        ProductDto product;
+        try {
+            requested = "original".equalsIgnoreCase(variant) ? null : ImageVariantService.Variant.fromName(variant);
+            product = productService.getProductById(id);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        } catch (RuntimeException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (product.getImageUrl() == null || product.getImageUrl().isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        
+        Path imagePath = imageVariantService.resolve(Paths.get(product.getImageUrl()), requested);
+        if (imagePath == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        
+        // The product's image can be replaced, so the URL is only cached briefly; the ETag follows the content
+        String hash = blobStorageService.hashOf(product.getImageUrl());
+        String cacheKey = hash != null ? imagePath.getFileName().toString() : null;
+        String etag = cacheKey != null ? "\"" + cacheKey + "\"" : null;
+        fileServingService.serve(cacheKey, () -> imagePath, etag, "public, max-age=300", request, response);
+    }
+    
     @PostMapping
     public ResponseEntity<ProductDto> createProduct(@Valid @RequestBody ProductCreateRequest request) {
         try {
@@ -92,4 +158,10 @@ public class ProductController {
             return ResponseEntity.badRequest().build();
         }
     }
+    
+    @PatchMapping("/bulk")
+    public ResponseEntity<BulkProductUpdateResultDto> bulkUpdate(@Valid @RequestBody BulkProductUpdateRequest request) {
+        BulkProductUpdateResultDto result = productBulkUpdateService.applyUpdates(request);
+        return ResponseEntity.ok(result);
+    }
 }
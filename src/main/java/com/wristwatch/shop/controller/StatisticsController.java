@@ -1,12 +1,19 @@
 package com.wristwatch.shop.controller;
 
+import com.wristwatch.shop.dto.CohortReportDto;
+import com.wristwatch.shop.dto.PeriodComparisonDto;
 import com.wristwatch.shop.dto.SalesReportDto;
+import com.wristwatch.shop.service.SalesExportService;
 import com.wristwatch.shop.service.StatisticsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +24,7 @@ import java.util.Map;
 public class StatisticsController {
     
     private final StatisticsService statisticsService;
+    private final SalesExportService salesExportService;
     
     @GetMapping("/sales/daily")
     public ResponseEntity<Map<String, Object>> getDailySales() {
@@ -62,4 +70,91 @@ public class StatisticsController {
         Map<String, Object> growth = statisticsService.getRevenueGrowth();
         return ResponseEntity.ok(growth);
     }
+    
+    @GetMapping("/revenue/comparisons")
+    public ResponseEntity<List<PeriodComparisonDto>> getRevenueComparisons() {
+        return ResponseEntity.ok(statisticsService.getPeriodComparisons());
+    }
+    
+    @GetMapping("/revenue/compare")
+    public ResponseEntity<PeriodComparisonDto> compareRevenue(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate currentStart,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate currentEnd,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate previousStart,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate previousEnd) {
+        try {
+            return ResponseEntity.ok(statisticsService.comparePeriods(currentStart, currentEnd, previousStart, previousEnd));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/customers/cohorts")
+    public ResponseEntity<CohortReportDto> getCustomerCohorts() {
+        return ResponseEntity.ok(statisticsService.getCohortReport());
+    }
+    
+    @GetMapping("/customers/unique")
+    public ResponseEntity<Map<String, Object>> getUniqueCustomers(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        
+        if (startDate == null || endDate == null) {
+            return ResponseEntity.ok(statisticsService.getUniqueCustomerSummary());
+        }
+        if (startDate.isAfter(endDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(statisticsService.getUniqueCustomers(startDate, endDate));
+    }
+    
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCacheMetrics() {
+        return ResponseEntity.ok(statisticsService.getCacheMetrics());
+    }
+    
+    @GetMapping("/export/orders")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return export(SalesExportService.Dataset.ORDERS, startDate, endDate, format, gzip);
+    }
+    
+    @GetMapping("/export/order-items")
+    public ResponseEntity<StreamingResponseBody> exportOrderItems(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return export(SalesExportService.Dataset.ORDER_ITEMS, startDate, endDate, format, gzip);
+    }
+    
+    private ResponseEntity<StreamingResponseBody> export(SalesExportService.Dataset dataset,
+                                                         LocalDateTime startDate, LocalDateTime endDate,
+                                                         String format, boolean gzip) {
+        if (startDate.isAfter(endDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            SalesExportService.Format exportFormat = SalesExportService.Format.valueOf(format.toUpperCase());
+            boolean xlsx = exportFormat == SalesExportService.Format.XLSX;
+            String fileName = dataset.getFileName() + (xlsx ? ".xlsx" : ".csv") + (gzip ? ".gz" : "");
+            MediaType contentType = gzip ? new MediaType("application", "gzip") :
+                    xlsx ? MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet") :
+                    new MediaType("text", "csv");
+            
+            StreamingResponseBody body = output ->
+                    salesExportService.export(dataset, exportFormat, startDate, endDate, gzip, output);
+            return ResponseEntity.ok()
+                    .contentType(contentType)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 }
@@ -0,0 +1,39 @@
+package com.wristwatch.shop.dto;
+
+import lombok.Data;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class BulkProductUpdateRequest {
+    
+    public enum Mode {
+        ABSOLUTE, DELTA
+    }
+    
+    @NotNull(message = "Mode is required")
+    private Mode mode = Mode.ABSOLUTE;
+    
+    @NotEmpty(message = "Updates are required")
+    @Size(max = 50000, message = "A batch must not exceed 50000 updates")
+    @Valid
+    private List<Item> updates;
+    
+    @Data
+    public static class Item {
+        
+        @NotNull(message = "Product ID is required")
+        private Long id;
+        
+        private Integer stock;
+        
+        @Digits(integer = 8, fraction = 2, message = "Price format is invalid")
+        private BigDecimal price;
+    }
+}
@@ -0,0 +1,29 @@
+package com.wristwatch.shop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkProductUpdateResultDto {
+    
+    public enum Status {
+        UPDATED, NOT_FOUND, REJECTED, INVALID
+    }
+    
+    private long updated;
+    private long failed;
+    private List<ItemResult> results = new ArrayList<>();
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+        private Long id;
+        private Status status;
+        private String message;
+    }
+}
@@ -0,0 +1,28 @@
+package com.wristwatch.shop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class CatalogImportReportDto {
+    
+    private long processed;
+    private long inserted;
+    private long updated;
+    private long failed;
+    private boolean errorsTruncated;
+    private List<RowErrorDto> errors = new ArrayList<>();
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowErrorDto {
+        private long line;
+        private String name;
+        private String message;
+    }
+}
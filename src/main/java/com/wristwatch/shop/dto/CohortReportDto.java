@@ -0,0 +1,31 @@
+package com.wristwatch.shop.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class CohortReportDto {
+    
+    private LocalDateTime processedUntil;
+    private Long totalCustomers;
+    private Long repeatCustomers;
+    private BigDecimal repeatPurchaseRate; // percent
+    private BigDecimal averageLifetimeValue;
+    private List<CohortDto> cohorts = new ArrayList<>();
+    
+    @Data
+    public static class CohortDto {
+        private LocalDate cohortMonth;
+        private Long customers;
+        private Long repeatCustomers;
+        private BigDecimal repeatPurchaseRate; // percent
+        private Long paidOrders;
+        private BigDecimal revenue;
+        private BigDecimal averageLifetimeValue;
+    }
+}
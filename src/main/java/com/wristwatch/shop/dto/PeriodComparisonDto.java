@@ -0,0 +1,22 @@
+package com.wristwatch.shop.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+public class PeriodComparisonDto {
+    
+    private String name;
+    private LocalDate currentStart;
+    private LocalDate currentEnd;
+    private LocalDate previousStart;
+    private LocalDate previousEnd;
+    private Long currentOrders;
+    private Long previousOrders;
+    private BigDecimal currentRevenue;
+    private BigDecimal previousRevenue;
+    private BigDecimal revenueChange;
+    private BigDecimal growthRate; // percent, null when the previous period had no revenue
+}
@@ -0,0 +1,19 @@
+package com.wristwatch.shop.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class ProductFacetsDto {
+    
+    private Long categoryId;
+    private String priceBand;
+    private Boolean inStockOnly;
+    private Long totalCount;
+    private Map<Long, Long> categoryCounts;
+    private Map<String, Long> priceBandCounts;
+    private Long inStockCount;
+    private List<ProductDto> products;
+}
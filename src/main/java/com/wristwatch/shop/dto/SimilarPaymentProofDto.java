@@ -0,0 +1,16 @@
+package com.wristwatch.shop.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class SimilarPaymentProofDto {
+    
+    private Long paymentProofId;
+    private Long orderId;
+    private LocalDateTime uploadedAt;
+    private boolean verified;
+    private int distance;
+    private boolean identical;
+}
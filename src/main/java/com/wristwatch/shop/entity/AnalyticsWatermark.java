@@ -0,0 +1,24 @@
+package com.wristwatch.shop.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "analytics_watermark")
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class AnalyticsWatermark {
+    
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+    
+    @Column(name = "processed_until", nullable = false)
+    private LocalDateTime processedUntil;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
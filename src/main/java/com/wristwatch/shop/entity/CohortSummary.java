@@ -0,0 +1,35 @@
+package com.wristwatch.shop.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "cohort_summary")
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class CohortSummary {
+    
+    @Id
+    @Column(name = "cohort_month")
+    private LocalDate cohortMonth;
+    
+    @Column(name = "customers", nullable = false)
+    private Long customers = 0L;
+    
+    @Column(name = "repeat_customers", nullable = false)
+    private Long repeatCustomers = 0L;
+    
+    @Column(name = "paid_orders", nullable = false)
+    private Long paidOrders = 0L;
+    
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,38 @@
+package com.wristwatch.shop.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "customer_lifetime")
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class CustomerLifetime {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "cohort_month", nullable = false)
+    private LocalDate cohortMonth;
+    
+    @Column(name = "first_paid_at", nullable = false)
+    private LocalDateTime firstPaidAt;
+    
+    @Column(name = "last_paid_at", nullable = false)
+    private LocalDateTime lastPaidAt;
+    
+    @Column(name = "paid_orders", nullable = false)
+    private Long paidOrders = 0L;
+    
+    @Column(name = "lifetime_revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal lifetimeRevenue = BigDecimal.ZERO;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
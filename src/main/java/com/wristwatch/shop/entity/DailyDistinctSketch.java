@@ -0,0 +1,42 @@
+package com.wristwatch.shop.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "daily_distinct_sketch")
+@IdClass(DailyDistinctSketch.Key.class)
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class DailyDistinctSketch {
+    
+    @Id
+    @Column(name = "sketch_date")
+    private LocalDate sketchDate;
+    
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "metric", length = 20)
+    private Metric metric;
+    
+    @Column(name = "registers", nullable = false)
+    private byte[] registers;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    public enum Metric {
+        BUYERS, VISITORS
+    }
+    
+    @Data
+    public static class Key implements Serializable {
+        private LocalDate sketchDate;
+        private Metric metric;
+    }
+}
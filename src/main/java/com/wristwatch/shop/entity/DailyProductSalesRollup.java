@@ -0,0 +1,44 @@
+package com.wristwatch.shop.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "daily_product_sales_rollup")
+@IdClass(DailyProductSalesRollup.Key.class)
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class DailyProductSalesRollup {
+    
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+    
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+    
+    @Column(name = "category_id")
+    private Long categoryId;
+    
+    @Column(name = "quantity", nullable = false)
+    private Long quantity = 0L;
+    
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @Data
+    public static class Key implements Serializable {
+        private LocalDate salesDate;
+        private Long productId;
+    }
+}
@@ -0,0 +1,29 @@
+package com.wristwatch.shop.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "daily_sales_rollup")
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class DailySalesRollup {
+    
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+    
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+    
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,33 @@
+package com.wristwatch.shop.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "blob")
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class FileBlob {
+    
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash; // hex SHA-256 of the content
+    
+    @Column(name = "extension", length = 10)
+    private String extension;
+    
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+    
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount = 0;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
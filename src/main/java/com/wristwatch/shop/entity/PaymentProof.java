@@ -29,6 +29,15 @@ public class PaymentProof {
     @Column(name = "file_name", nullable = false)
     private String fileName;
     
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    
+    @Column(name = "perceptual_hash")
+    private Long perceptualHash;
+    
+    @Column(name = "archive_key")
+    private String archiveKey; // bundle holding the file once it has been archived
+    
     @CreatedDate
     @Column(name = "uploaded_at")
     private LocalDateTime uploadedAt;
@@ -21,7 +21,7 @@ public class Product {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @Column(name = "name", nullable = false)
+    @Column(name = "name", unique = true, nullable = false)
     private String name;
     
     @Column(name = "description")
@@ -40,6 +40,9 @@ public class Product {
     @Column(name = "image_url")
     private String imageUrl;
     
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+    
     @Column(name = "is_active")
     private Boolean isActive = true;
     
@@ -0,0 +1,12 @@
+package com.wristwatch.shop.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class CatalogChangedEvent {
+    private List<Long> productIds;
+}
@@ -0,0 +1,19 @@
+package com.wristwatch.shop.event;
+
+import com.wristwatch.shop.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class OrderStatusChangedEvent {
+    private Long orderId;
+    private Long customerTelegramId;
+    private Order.OrderStatus oldStatus; // null when the order has just been created
+    private Order.OrderStatus newStatus;
+    private BigDecimal totalAmount;
+    private LocalDateTime orderCreatedAt;
+}
@@ -8,4 +8,5 @@ import lombok.Data;
 public class PaymentProofUploadedEvent {
     private Long orderId;
     private Long customerTelegramId;
+    private Long paymentProofId;
 }
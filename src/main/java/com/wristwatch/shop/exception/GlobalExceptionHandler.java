@@ -7,6 +7,7 @@ import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -26,6 +27,26 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(error);
     }
     
+    @ExceptionHandler(UploadRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleUploadRejected(UploadRejectedException e) {
+        log.warn("Upload rejected: {}", e.getMessage());
+        
+        Map<String, String> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        error.put("status", "error");
+        
+        return ResponseEntity.status(e.getStatus()).body(error);
+    }
+    
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<Map<String, String>> handleMaxUploadSizeExceeded(MaxUploadSizeExceededException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "File is too large");
+        error.put("status", "error");
+        
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(error);
+    }
+    
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidationExceptions(MethodArgumentNotValidException e) {
         Map<String, Object> response = new HashMap<>();
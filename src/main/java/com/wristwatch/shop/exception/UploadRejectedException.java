@@ -0,0 +1,20 @@
+package com.wristwatch.shop.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * An upload refused before it was stored, with the status to answer the client with.
+ */
+public class UploadRejectedException extends RuntimeException {
+    
+    private final HttpStatus status;
+    
+    public UploadRejectedException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+    
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
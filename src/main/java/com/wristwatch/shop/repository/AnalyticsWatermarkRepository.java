@@ -0,0 +1,9 @@
+package com.wristwatch.shop.repository;
+
+import com.wristwatch.shop.entity.AnalyticsWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AnalyticsWatermarkRepository extends JpaRepository<AnalyticsWatermark, String> {
+}
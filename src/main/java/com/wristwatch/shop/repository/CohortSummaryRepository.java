@@ -0,0 +1,31 @@
+package com.wristwatch.shop.repository;
+
+import com.wristwatch.shop.entity.CohortSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CohortSummaryRepository extends JpaRepository<CohortSummary, LocalDate> {
+    
+    List<CohortSummary> findAllByOrderByCohortMonthDesc();
+    
+    @Modifying
+    @Query(value = "DELETE FROM cohort_summary WHERE cohort_month IN (:months)", nativeQuery = true)
+    int deleteByCohortMonthIn(@Param("months") Collection<LocalDate> months);
+    
+    @Modifying
+    @Query(value = "INSERT INTO cohort_summary (cohort_month, customers, repeat_customers, paid_orders, revenue, updated_at) " +
+                   "SELECT c.cohort_month, COUNT(*), COUNT(*) FILTER (WHERE c.paid_orders > 1), " +
+                   "SUM(c.paid_orders), SUM(c.lifetime_revenue), now() " +
+                   "FROM customer_lifetime c WHERE c.cohort_month IN (:months) " +
+                   "GROUP BY c.cohort_month",
+           nativeQuery = true)
+    int insertFromCustomers(@Param("months") Collection<LocalDate> months);
+}
@@ -0,0 +1,40 @@
+package com.wristwatch.shop.repository;
+
+import com.wristwatch.shop.entity.CustomerLifetime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CustomerLifetimeRepository extends JpaRepository<CustomerLifetime, Long> {
+    
+    @Query(value = "SELECT DISTINCT o.user_id FROM \"order\" o " +
+                   "WHERE o.updated_at > :from AND o.updated_at <= :until AND o.user_id IS NOT NULL",
+           nativeQuery = true)
+    List<Long> findUserIdsWithOrdersChangedBetween(@Param("from") LocalDateTime from,
+                                                   @Param("until") LocalDateTime until);
+    
+    @Query("SELECT DISTINCT c.cohortMonth FROM CustomerLifetime c WHERE c.userId IN :userIds")
+    List<LocalDate> findCohortMonthsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+    
+    @Modifying
+    @Query(value = "DELETE FROM customer_lifetime WHERE user_id IN (:userIds)", nativeQuery = true)
+    int deleteByUserIdIn(@Param("userIds") Collection<Long> userIds);
+    
+    @Modifying
+    @Query(value = "INSERT INTO customer_lifetime (user_id, cohort_month, first_paid_at, last_paid_at, " +
+                   "paid_orders, lifetime_revenue, updated_at) " +
+                   "SELECT o.user_id, CAST(date_trunc('month', MIN(o.created_at)) AS date), MIN(o.created_at), " +
+                   "MAX(o.created_at), COUNT(*), SUM(o.total_amount), now() " +
+                   "FROM \"order\" o WHERE o.status = 'PAID' AND o.user_id IN (:userIds) " +
+                   "GROUP BY o.user_id",
+           nativeQuery = true)
+    int insertFromOrders(@Param("userIds") Collection<Long> userIds);
+}
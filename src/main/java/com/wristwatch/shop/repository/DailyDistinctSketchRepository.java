@@ -0,0 +1,40 @@
+package com.wristwatch.shop.repository;
+
+import com.wristwatch.shop.entity.DailyDistinctSketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DailyDistinctSketchRepository extends JpaRepository<DailyDistinctSketch, DailyDistinctSketch.Key> {
+    
+    List<DailyDistinctSketch> findByMetricAndSketchDateBetween(DailyDistinctSketch.Metric metric,
+                                                               LocalDate startDate, LocalDate endDate);
+    
+    boolean existsByMetric(DailyDistinctSketch.Metric metric);
+    
+    /**
+     * Stores the sketch if the day has none yet; returns 0 if another writer got there first.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_distinct_sketch (sketch_date, metric, registers, updated_at) " +
+                   "VALUES (:sketchDate, :metric, :registers, now()) " +
+                   "ON CONFLICT (sketch_date, metric) DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("sketchDate") LocalDate sketchDate, @Param("metric") String metric,
+                       @Param("registers") byte[] registers);
+    
+    /**
+     * Locks the stored sketch until the end of the transaction, so concurrent flushes merge in turn.
+     */
+    @Query(value = "SELECT * FROM daily_distinct_sketch WHERE sketch_date = :sketchDate AND metric = :metric FOR UPDATE",
+           nativeQuery = true)
+    Optional<DailyDistinctSketch> findForUpdate(@Param("sketchDate") LocalDate sketchDate,
+                                                @Param("metric") String metric);
+}
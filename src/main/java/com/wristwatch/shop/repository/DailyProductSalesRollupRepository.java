@@ -0,0 +1,50 @@
+package com.wristwatch.shop.repository;
+
+import com.wristwatch.shop.entity.DailyProductSalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyProductSalesRollupRepository
+        extends JpaRepository<DailyProductSalesRollup, DailyProductSalesRollup.Key> {
+    
+    @Modifying
+    @Query(value = "INSERT INTO daily_product_sales_rollup (sales_date, product_id, category_id, quantity, revenue, updated_at) " +
+                   "VALUES (:salesDate, :productId, :categoryId, :quantity, :revenue, now()) " +
+                   "ON CONFLICT (sales_date, product_id) DO UPDATE SET " +
+                   "category_id = EXCLUDED.category_id, " +
+                   "quantity = daily_product_sales_rollup.quantity + EXCLUDED.quantity, " +
+                   "revenue = daily_product_sales_rollup.revenue + EXCLUDED.revenue, " +
+                   "updated_at = now()",
+           nativeQuery = true)
+    void addSales(@Param("salesDate") LocalDate salesDate, @Param("productId") Long productId,
+                  @Param("categoryId") Long categoryId, @Param("quantity") long quantity,
+                  @Param("revenue") BigDecimal revenue);
+    
+    @Query("SELECT r.salesDate, r.productId, p.name, r.quantity FROM DailyProductSalesRollup r, Product p " +
+           "WHERE p.id = r.productId AND r.salesDate >= :from")
+    List<Object[]> findQuantitiesSince(@Param("from") LocalDate from);
+    
+    @Modifying
+    @Query(value = "DELETE FROM daily_product_sales_rollup WHERE sales_date >= CAST(:from AS date)", nativeQuery = true)
+    int deleteFrom(@Param("from") LocalDateTime from);
+    
+    @Modifying
+    @Query(value = "INSERT INTO daily_product_sales_rollup (sales_date, product_id, category_id, quantity, revenue, updated_at) " +
+                   "SELECT CAST(o.created_at AS date), oi.product_id, MAX(p.category_id), SUM(oi.quantity), SUM(oi.total_price), now() " +
+                   "FROM order_item oi " +
+                   "JOIN \"order\" o ON o.id = oi.order_id " +
+                   "JOIN product p ON p.id = oi.product_id " +
+                   "WHERE o.status = 'PAID' AND o.created_at >= :from " +
+                   "GROUP BY CAST(o.created_at AS date), oi.product_id",
+           nativeQuery = true)
+    int insertFromOrders(@Param("from") LocalDateTime from);
+}
@@ -0,0 +1,44 @@
+package com.wristwatch.shop.repository;
+
+import com.wristwatch.shop.entity.DailySalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailySalesRollupRepository extends JpaRepository<DailySalesRollup, LocalDate> {
+    
+    @Query("SELECT COALESCE(SUM(r.orderCount), 0), COALESCE(SUM(r.revenue), 0) FROM DailySalesRollup r " +
+           "WHERE r.salesDate >= :startDate AND r.salesDate <= :endDate")
+    List<Object[]> sumBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales_rollup (sales_date, order_count, revenue, updated_at) " +
+                   "VALUES (:salesDate, :orders, :revenue, now()) " +
+                   "ON CONFLICT (sales_date) DO UPDATE SET " +
+                   "order_count = daily_sales_rollup.order_count + EXCLUDED.order_count, " +
+                   "revenue = daily_sales_rollup.revenue + EXCLUDED.revenue, " +
+                   "updated_at = now()",
+           nativeQuery = true)
+    void addSales(@Param("salesDate") LocalDate salesDate, @Param("orders") long orders,
+                  @Param("revenue") BigDecimal revenue);
+    
+    @Modifying
+    @Query(value = "DELETE FROM daily_sales_rollup WHERE sales_date >= CAST(:from AS date)", nativeQuery = true)
+    int deleteFrom(@Param("from") LocalDateTime from);
+    
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales_rollup (sales_date, order_count, revenue, updated_at) " +
+                   "SELECT CAST(o.created_at AS date), COUNT(*), SUM(o.total_amount), now() " +
+                   "FROM \"order\" o WHERE o.status = 'PAID' AND o.created_at >= :from " +
+                   "GROUP BY CAST(o.created_at AS date)",
+           nativeQuery = true)
+    int insertFromOrders(@Param("from") LocalDateTime from);
+}
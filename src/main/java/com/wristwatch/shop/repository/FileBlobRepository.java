@@ -0,0 +1,77 @@
+package com.wristwatch.shop.repository;
+
+import com.wristwatch.shop.entity.FileBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+    
+    /**
+     * Records a blob with no references and returns one row of {extension, inserted}: the
+     * extension it is stored under, which is the one of the first upload of that content, and
+     * whether the row was new. Storing the same content again refreshes {@code updated_at},
+     * which restarts its grace period before an unreferenced blob is swept. While the orphan
+     * sweep is deleting the same blob this waits for it, then inserts a new row.
+     */
+    @Transactional
+    @Query(value = "INSERT INTO blob (hash, extension, size_bytes, ref_count, created_at, updated_at) " +
+                   "VALUES (:hash, :extension, :sizeBytes, 0, now(), now()) " +
+                   "ON CONFLICT (hash) DO UPDATE SET updated_at = now() " +
+                   "RETURNING extension, (xmax = 0) AS inserted",
+           nativeQuery = true)
+    List<Object[]> register(@Param("hash") String hash, @Param("extension") String extension,
+                    @Param("sizeBytes") long sizeBytes);
+    
+    @Modifying
+    @Query(value = "UPDATE blob SET ref_count = ref_count + 1, updated_at = now() WHERE hash = :hash",
+           nativeQuery = true)
+    int acquire(@Param("hash") String hash);
+    
+    @Modifying
+    @Query(value = "UPDATE blob SET ref_count = GREATEST(ref_count - 1, 0), updated_at = now() WHERE hash = :hash",
+           nativeQuery = true)
+    int release(@Param("hash") String hash);
+    
+    /**
+     * Recomputes the reference counts of blobs whose hash is in [from, to) from the rows that
+     * use them: active products, and payment proofs that are neither archived nor rejected.
+     * Corrected rows get a new {@code updated_at}, so a blob that just lost its last reference
+     * still gets the full grace period.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE blob b SET ref_count = r.refs, updated_at = now() FROM (" +
+                   "SELECT b2.hash, " +
+                   "(SELECT count(*) FROM product p WHERE p.image_hash = b2.hash AND p.is_active = true) + " +
+                   "(SELECT count(*) FROM payment_proof pp JOIN \"order\" o ON o.id = pp.order_id " +
+                   "WHERE pp.content_hash = b2.hash AND pp.archive_key IS NULL AND o.status <> 'REJECTED') AS refs " +
+                   "FROM blob b2 WHERE b2.hash >= :from AND b2.hash < :to) r " +
+                   "WHERE b.hash = r.hash AND b.ref_count <> r.refs",
+           nativeQuery = true)
+    int reconcileRange(@Param("from") String from, @Param("to") String to);
+    
+    @Query(value = "SELECT hash, extension, size_bytes FROM blob " +
+                   "WHERE hash >= :from AND hash < :to AND ref_count = 0 AND updated_at < :cutoff",
+           nativeQuery = true)
+    List<Object[]> findOrphans(@Param("from") String from, @Param("to") String to,
+                               @Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * Deletes the row only if the blob is still unreferenced and was not stored again meanwhile.
+     * Run it in the transaction that deletes the files, so the row stays locked against
+     * {@link #register} until they are gone.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM blob WHERE hash = :hash AND ref_count = 0 AND updated_at < :cutoff",
+           nativeQuery = true)
+    int deleteOrphan(@Param("hash") String hash, @Param("cutoff") LocalDateTime cutoff);
+}
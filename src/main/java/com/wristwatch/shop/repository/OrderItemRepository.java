@@ -1,6 +1,7 @@
 package com.wristwatch.shop.repository;
 
 import com.wristwatch.shop.entity.OrderItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,10 +15,15 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     
     List<OrderItem> findByOrderId(Long orderId);
     
-    @Query("SELECT oi.product.name, SUM(oi.quantity) as totalSold " +
+    @Query("SELECT oi.product.id, oi.product.name, oi.quantity FROM OrderItem oi WHERE oi.order.id = :orderId")
+    List<Object[]> findSalesLinesByOrderId(@Param("orderId") Long orderId);
+    
+    @Query("SELECT oi.product.name, SUM(oi.quantity) as totalSold, SUM(oi.totalPrice) " +
            "FROM OrderItem oi " +
-           "WHERE oi.order.status = 'PAID' AND oi.order.createdAt >= :startDate " +
+           "WHERE oi.order.status = 'PAID' AND oi.order.createdAt >= :startDate AND oi.order.createdAt <= :endDate " +
            "GROUP BY oi.product.id, oi.product.name " +
            "ORDER BY totalSold DESC")
-    List<Object[]> findTopSellingProductsSince(@Param("startDate") LocalDateTime startDate);
+    List<Object[]> findTopSellingProductsBetween(@Param("startDate") LocalDateTime startDate,
+                                                 @Param("endDate") LocalDateTime endDate,
+                                                 Pageable pageable);
 }
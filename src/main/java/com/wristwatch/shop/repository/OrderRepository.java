@@ -19,11 +19,18 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o WHERE o.status = :status ORDER BY o.createdAt ASC")
     List<Order> findByStatusOrderByCreatedAtAsc(@Param("status") Order.OrderStatus status);
     
-    @Query("SELECT COUNT(o) FROM Order o WHERE o.status = 'PAID' AND o.createdAt >= :startDate")
-    Long countPaidOrdersSince(@Param("startDate") LocalDateTime startDate);
+    @Query("SELECT o.status, COUNT(o) FROM Order o GROUP BY o.status")
+    List<Object[]> countOrdersGroupedByStatus();
     
-    @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.status = 'PAID' AND o.createdAt >= :startDate")
-    Double getTotalRevenueSince(@Param("startDate") LocalDateTime startDate);
+    long countByCreatedAtGreaterThanEqual(LocalDateTime startDate);
+    
+    @Query(value = "SELECT CAST(date_trunc('day', o.created_at) AS date) AS sales_day, COUNT(*), SUM(o.total_amount) " +
+                   "FROM \"order\" o " +
+                   "WHERE o.status = 'PAID' AND o.created_at >= :startDate AND o.created_at <= :endDate " +
+                   "GROUP BY sales_day ORDER BY sales_day",
+           nativeQuery = true)
+    List<Object[]> sumPaidOrdersByDayBetween(@Param("startDate") LocalDateTime startDate,
+                                             @Param("endDate") LocalDateTime endDate);
     
     @Query("SELECT o FROM Order o WHERE o.createdAt >= :startDate AND o.createdAt <= :endDate ORDER BY o.createdAt DESC")
     List<Order> findOrdersBetweenDates(@Param("startDate") LocalDateTime startDate, 
@@ -1,9 +1,16 @@
 package com.wristwatch.shop.repository;
 
+import com.wristwatch.shop.entity.Order;
 import com.wristwatch.shop.entity.PaymentProof;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +22,30 @@ public interface PaymentProofRepository extends JpaRepository<PaymentProof, Long
     Optional<PaymentProof> findByOrderIdAndVerifiedAtIsNull(Long orderId);
     
     List<PaymentProof> findByVerifiedAtIsNullOrderByUploadedAtAsc();
+    
+    List<PaymentProof> findByContentHashAndIdNot(String contentHash, Long id);
+    
+    @Query("SELECT p.id, p.perceptualHash FROM PaymentProof p WHERE p.perceptualHash IS NOT NULL " +
+           "AND p.id > :afterId ORDER BY p.id")
+    List<Object[]> findPerceptualHashesAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT MIN(p.id) FROM PaymentProof p WHERE p.perceptualHash IS NULL " +
+           "AND p.id > :afterId AND p.uploadedAt > :uploadedAfter")
+    Long findFirstUnhashedIdAfter(@Param("afterId") Long afterId, @Param("uploadedAfter") LocalDateTime uploadedAfter);
+    
+    @Query("SELECT p.id FROM PaymentProof p WHERE p.perceptualHash IS NULL ORDER BY p.id")
+    List<Long> findIdsWithoutPerceptualHash();
+    
+    @Query("SELECT p FROM PaymentProof p WHERE p.verifiedAt < :cutoff AND p.archiveKey IS NULL " +
+           "AND p.contentHash IS NOT NULL AND p.order.status <> :excluded AND p.id > :afterId ORDER BY p.id")
+    List<PaymentProof> findArchivable(@Param("cutoff") LocalDateTime cutoff,
+                                      @Param("excluded") Order.OrderStatus excluded,
+                                      @Param("afterId") Long afterId, Pageable pageable);
+    
+    Optional<PaymentProof> findFirstByContentHashAndArchiveKeyIsNotNull(String contentHash);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentProof p SET p.perceptualHash = :hash WHERE p.id = :id AND p.perceptualHash IS NULL")
+    int setPerceptualHash(@Param("id") Long id, @Param("hash") Long hash);
 }
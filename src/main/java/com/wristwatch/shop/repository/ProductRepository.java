@@ -1,12 +1,15 @@
 package com.wristwatch.shop.repository;
 
+import com.wristwatch.shop.dto.ProductDto;
 import com.wristwatch.shop.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -22,4 +25,54 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findAvailableProductsByCategory(@Param("categoryId") Long categoryId);
     
     boolean existsByName(String name);
+    
+    boolean existsByImageHashAndIsActiveTrue(String imageHash);
+    
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.name, p.id FROM Product p WHERE p.name IN :names ORDER BY p.id ASC")
+    List<Object[]> findIdsByNameIn(@Param("names") Collection<String> names);
+    
+    @Query("SELECT new com.wristwatch.shop.dto.ProductDto(p.id, p.name, p.description, p.price, p.stock, " +
+           "c.id, c.name, p.imageUrl, p.isActive) " +
+           "FROM Product p LEFT JOIN p.category c " +
+           "WHERE p.isActive = true ORDER BY p.name ASC")
+    List<ProductDto> findActiveProductDtos();
+    
+    @Query("SELECT new com.wristwatch.shop.dto.ProductDto(p.id, p.name, p.description, p.price, p.stock, " +
+           "c.id, c.name, p.imageUrl, p.isActive) " +
+           "FROM Product p JOIN p.category c " +
+           "WHERE c.id = :categoryId AND p.isActive = true")
+    List<ProductDto> findActiveProductDtosByCategory(@Param("categoryId") Long categoryId);
+    
+    @Query("SELECT new com.wristwatch.shop.dto.ProductDto(p.id, p.name, p.description, p.price, p.stock, " +
+           "c.id, c.name, p.imageUrl, p.isActive) " +
+           "FROM Product p LEFT JOIN p.category c " +
+           "WHERE p.isActive = true AND p.stock > 0 ORDER BY p.name ASC")
+    List<ProductDto> findAvailableProductDtos();
+    
+    @Query("SELECT new com.wristwatch.shop.dto.ProductDto(p.id, p.name, p.description, p.price, p.stock, " +
+           "c.id, c.name, p.imageUrl, p.isActive) " +
+           "FROM Product p JOIN p.category c " +
+           "WHERE c.id = :categoryId AND p.isActive = true AND p.stock > 0 ORDER BY p.name ASC")
+    List<ProductDto> findAvailableProductDtosByCategory(@Param("categoryId") Long categoryId);
+    
+    @Query("SELECT new com.wristwatch.shop.dto.ProductDto(p.id, p.name, p.description, p.price, p.stock, " +
+           "c.id, c.name, p.imageUrl, p.isActive) " +
+           "FROM Product p LEFT JOIN p.category c " +
+           "WHERE p.id = :id")
+    Optional<ProductDto> findProductDtoById(@Param("id") Long id);
+    
+    @Query("SELECT new com.wristwatch.shop.dto.ProductDto(p.id, p.name, p.description, p.price, p.stock, " +
+           "c.id, c.name, p.imageUrl, p.isActive) " +
+           "FROM Product p LEFT JOIN p.category c " +
+           "WHERE p.id IN :ids ORDER BY p.name ASC")
+    List<ProductDto> findProductDtosByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id, c.id, p.price, p.stock FROM Product p LEFT JOIN p.category c WHERE p.isActive = true")
+    List<Object[]> findActiveFacetRows();
+    
+    @Query("SELECT p.id, c.id, p.price, p.stock FROM Product p LEFT JOIN p.category c WHERE p.isActive = true AND p.id IN :ids")
+    List<Object[]> findActiveFacetRowsByIdIn(@Param("ids") Collection<Long> ids);
 }
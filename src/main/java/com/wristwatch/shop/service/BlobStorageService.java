@@ -0,0 +1,298 @@
+package com.wristwatch.shop.service;
+
+import com.wristwatch.shop.repository.FileBlobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed file storage. Uploads are streamed to a temporary file while their
+ * SHA-256 is computed, then handed to the {@link BlobStore} under {@code ab/cd/<hash>.<ext>},
+ * so the same content is only ever stored once, under the extension of its first upload.
+ * Stored paths always point into {@code blobs/}; with a remote backend that directory is a
+ * cache and {@link #localFile} downloads missing files. The {@code blob} table counts the payment proofs and products
+ * that reference each file.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BlobStorageService {
+
+    private static final Pattern BLOB_FILE_NAME = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,5})?");
+    private static final Pattern SERVABLE_FILE_NAME = Pattern.compile("([0-9a-f]{64})(_[a-z]+)?(\\.[a-z0-9]{1,5})?");
+    private static final String ARCHIVE_PREFIX = "archive/";
+    private static final String LEGACY_PREFIX = "legacy/";
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("\\.[a-z0-9]{1,5}");
+
+    private final FileBlobRepository fileBlobRepository;
+    private final BlobStore blobStore;
+
+    @Value("${file.upload.dir:./uploads}")
+    private String uploadDir;
+
+    public record StoredBlob(String hash, Path path, long size, boolean created) {
+    }
+
+    /**
+     * Stores the stream's content and returns where it lives. {@code created} is false when
+     * identical content was already stored. The caller still owns and closes the stream.
+     */
+    public StoredBlob store(InputStream input, String extension) throws IOException {
+        Path tempDir = blobRoot().resolve("tmp");
+        Files.createDirectories(tempDir);
+        Path temp = Files.createTempFile(tempDir, "upload-", ".tmp");
+
+        MessageDigest digest = sha256();
+        long size;
+        try {
+            try (OutputStream output = Files.newOutputStream(temp)) {
+                size = new DigestInputStream(input, digest).transferTo(output);
+            }
+            if (size == 0) {
+                throw new IOException("Cannot store empty file");
+            }
+        } catch (IOException | RuntimeException e) {
+            // Includes uploads aborted by a size-limiting stream
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        String hash = HexFormat.of().formatHex(digest.digest());
+        String storedExtension;
+        boolean registered;
+        try {
+            // Registered first so the same bytes uploaded with another extension reuse one file
+            Object[] registration = fileBlobRepository.register(hash, normalizeExtension(extension), size).get(0);
+            storedExtension = (String) registration[0];
+            registered = (Boolean) registration[1];
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Path target = pathFor(hash, storedExtension);
+        String key = keyOf(target);
+
+        // A new row may follow an orphan sweep of the same content, so the file is stored regardless
+        boolean created = registered || !blobStore.exists(key);
+        try {
+            if (created) {
+                blobStore.put(key, temp, contentTypeOf(key));
+            }
+        } finally {
+            // Already moved into place unless the content was a duplicate or the upload failed
+            Files.deleteIfExists(temp);
+        }
+
+        log.info("Stored blob {} ({} bytes, {})", target, size, created ? "new" : "deduplicated");
+        return new StoredBlob(hash, target, size, created);
+    }
+
+    /**
+     * Returns the content hash if the path points at a stored blob, or null for legacy files.
+     */
+    public String hashOf(String filePath) {
+        if (filePath == null || filePath.isBlank()) {
+            return null;
+        }
+        Path fileName = Paths.get(filePath).getFileName();
+        Matcher matcher = fileName != null ? BLOB_FILE_NAME.matcher(fileName.toString()) : null;
+        return matcher != null && matcher.matches() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Resolves a blob file name such as {@code <hash>.jpg} to its sharded path, or null if the name is not a blob.
+     */
+    public Path resolveFileName(String fileName) {
+        Matcher matcher = BLOB_FILE_NAME.matcher(fileName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return pathFor(matcher.group(1), matcher.group(2) != null ? matcher.group(2) : "");
+    }
+
+    /**
+     * Like {@link #resolveFileName} but also accepts generated image variants such as {@code <hash>_card.jpg}.
+     * These never change once written, so they can be cached as immutable.
+     */
+    public Path resolveServableFileName(String fileName) {
+        Matcher matcher = SERVABLE_FILE_NAME.matcher(fileName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String hash = matcher.group(1);
+        return blobRoot().resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(fileName);
+    }
+
+    /**
+     * Adds a reference from the row being saved; must run in the transaction that saves it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public String acquire(String filePath) {
+        String hash = hashOf(filePath);
+        if (hash != null) {
+            fileBlobRepository.acquire(hash);
+        }
+        return hash;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(String hash) {
+        if (hash != null) {
+            fileBlobRepository.release(hash);
+        }
+    }
+
+    /**
+     * Returns a readable local copy of a stored file, fetching it from the backend if needed,
+     * or null if it does not exist. Files outside the blob directory are returned as they are.
+     */
+    public Path localFile(Path path) throws IOException {
+        String key = keyOf(path);
+        if (key == null) {
+            return Files.isRegularFile(path) ? path : null;
+        }
+        return blobStore.fetch(key);
+    }
+
+    /**
+     * Returns a readable copy of a file stored before uploads were content-addressed, or null if it
+     * does not exist or the name escapes its directory. Such files live in
+     * {@code <file.upload.dir>/<directory>}; when the local copy is missing they are looked up in the
+     * backend under {@code legacy/<directory>/<name>}, where they are moved when migrating nodes to a remote store.
+     */
+    public Path legacyFile(String directory, String fileName) throws IOException {
+        Path root = Paths.get(uploadDir, directory).toAbsolutePath().normalize();
+        Path file = root.resolve(fileName).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            return null;
+        }
+        if (Files.isRegularFile(file)) {
+            return file;
+        }
+        return blobStore.fetch(LEGACY_PREFIX + directory + "/" + root.relativize(file).toString().replace('\\', '/'));
+    }
+
+    public boolean exists(Path path) throws IOException {
+        String key = keyOf(path);
+        return key == null ? Files.isRegularFile(path) : blobStore.exists(key);
+    }
+
+    /**
+     * Stores a file that was written directly into the blob directory, such as a generated
+     * image variant, in the backend. The local file stays where it is; files outside the blob
+     * directory are ignored.
+     */
+    public void publish(Path localFile) throws IOException {
+        String key = keyOf(localFile);
+        if (key != null) {
+            blobStore.put(key, localFile, contentTypeOf(key));
+        }
+    }
+
+    public void delete(Path path) throws IOException {
+        String key = keyOf(path);
+        if (key == null) {
+            throw new IllegalArgumentException("Not a blob path: " + path);
+        }
+        blobStore.delete(key);
+    }
+
+    /**
+     * Stores an archive bundle under {@code archive/<name>}; the local file may be moved.
+     */
+    public void storeArchive(String name, Path bundle) throws IOException {
+        blobStore.put(ARCHIVE_PREFIX + name, bundle, "application/zip");
+    }
+
+    /**
+     * Returns a local copy of an archive bundle, or null if it does not exist.
+     */
+    public Path fetchArchive(String name) throws IOException {
+        return blobStore.fetch(ARCHIVE_PREFIX + name);
+    }
+
+    public Optional<URL> presign(Path path, Duration ttl) {
+        String key = keyOf(path);
+        return key != null ? blobStore.presign(key, ttl) : Optional.empty();
+    }
+
+    public Path pathFor(String hash, String extension) {
+        return blobRoot().resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + extension);
+    }
+
+    public Path blobRoot() {
+        return Paths.get(uploadDir, "blobs");
+    }
+
+    /**
+     * The extension of the last path segment including the dot, or null if it has none.
+     */
+    public static String extensionOf(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        String name = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1);
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(dot) : null;
+    }
+
+    /**
+     * The backend key of a path inside the blob directory, or null for any other path.
+     */
+    private String keyOf(Path path) {
+        Path root = blobRoot().toAbsolutePath().normalize();
+        Path absolute = path.toAbsolutePath().normalize();
+        if (!absolute.startsWith(root) || absolute.equals(root)) {
+            return null;
+        }
+        return root.relativize(absolute).toString().replace('\\', '/');
+    }
+
+    private String contentTypeOf(String key) {
+        return MediaTypeFactory.getMediaType(key).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+    }
+
+    private String normalizeExtension(String extension) {
+        if (extension == null) {
+            return ".jpg";
+        }
+        String normalized = extension.toLowerCase(Locale.ROOT);
+        if (!normalized.startsWith(".")) {
+            normalized = "." + normalized;
+        }
+        if (normalized.equals(".jpeg")) {
+            return ".jpg";
+        }
+        return SAFE_EXTENSION.matcher(normalized).matches() ? normalized : ".bin";
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
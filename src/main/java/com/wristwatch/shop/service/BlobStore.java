@@ -0,0 +1,43 @@
+package com.wristwatch.shop.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Storage backend for content-addressed blobs. Keys are relative paths such as
+ * {@code ab/cd/<hash>.jpg}; objects are written once and never modified.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores the finished local file under {@code key}. The source may be moved or removed,
+     * so callers must not use it afterwards unless it is the file {@link #fetch} returns for the key.
+     */
+    void put(String key, Path source, String contentType) throws IOException;
+
+    /**
+     * Opens the object for reading.
+     *
+     * @throws java.nio.file.NoSuchFileException if there is no such object
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Returns a local file holding the object's content, or null if there is no such object.
+     * The file belongs to the store and must not be modified.
+     */
+    Path fetch(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * A time-limited URL clients can read the object from directly, if the backend supports it.
+     */
+    Optional<URL> presign(String key, Duration ttl);
+}
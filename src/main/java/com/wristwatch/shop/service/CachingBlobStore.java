@@ -0,0 +1,246 @@
+package com.wristwatch.shop.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Keeps recently used objects of a remote store on local disk, laid out exactly like a
+ * {@link LocalBlobStore} so local paths stay valid. Concurrent fetches of the same key share one
+ * download, and the least recently used files are removed once the cache exceeds its size limit.
+ * <p>
+ * Callers get a bare {@link Path} that is read after this store returns it, for instance by
+ * Tomcat's sendfile once the servlet has finished, so files used within the pin duration are
+ * never evicted; the cache may briefly exceed its limit instead.
+ */
+@Slf4j
+public class CachingBlobStore implements BlobStore {
+
+    private final BlobStore delegate;
+    private final Path root;
+    private final Path tempDirectory;
+    private final long maxBytes;
+    private final long pinNanos;
+
+    // Access-ordered, so iteration starts at the least recently used file
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Object> fetchLocks = new ConcurrentHashMap<>();
+    private long totalBytes;
+
+    private static class CacheEntry {
+        final long size;
+        long lastUsed = System.nanoTime();
+
+        CacheEntry(long size) {
+            this.size = size;
+        }
+    }
+
+    public CachingBlobStore(BlobStore delegate, Path root, long maxBytes, Duration pinDuration) {
+        this.delegate = delegate;
+        this.root = root.toAbsolutePath().normalize();
+        this.tempDirectory = this.root.resolve("tmp");
+        this.maxBytes = maxBytes;
+        this.pinNanos = pinDuration.toNanos();
+        scan();
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        delegate.put(key, source, contentType);
+
+        Path target = resolve(key);
+        if (!target.equals(source.toAbsolutePath().normalize())) {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                Files.deleteIfExists(source);
+            }
+        }
+        track(key, Files.size(target));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        Path local = fetch(key);
+        if (local == null) {
+            throw new NoSuchFileException(key);
+        }
+        return Files.newInputStream(local);
+    }
+
+    @Override
+    public Path fetch(String key) throws IOException {
+        Path target = resolve(key);
+        if (Files.isRegularFile(target)) {
+            touch(key);
+            return target;
+        }
+
+        Object lock = fetchLocks.computeIfAbsent(key, k -> new Object());
+        try {
+            synchronized (lock) {
+                // Another thread may have downloaded it while this one waited
+                if (Files.isRegularFile(target)) {
+                    touch(key);
+                    return target;
+                }
+                return download(key, target);
+            }
+        } finally {
+            fetchLocks.remove(key, lock);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return Files.isRegularFile(resolve(key)) || delegate.exists(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        delegate.delete(key);
+        evict(key);
+    }
+
+    @Override
+    public Optional<URL> presign(String key, Duration ttl) {
+        return delegate.presign(key, ttl);
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        return Map.of("entries", entries.size(), "bytes", totalBytes, "maxBytes", maxBytes);
+    }
+
+    private Path download(String key, Path target) throws IOException {
+        Files.createDirectories(tempDirectory);
+        Path temp = Files.createTempFile(tempDirectory, "fetch-", ".tmp");
+        try (InputStream input = delegate.open(key)) {
+            Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            Files.deleteIfExists(temp);
+            return null;
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(temp);
+        }
+        track(key, Files.size(target));
+        log.debug("Cached blob {} locally", key);
+        return target;
+    }
+
+    private synchronized void touch(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null) {
+            entry.lastUsed = System.nanoTime();
+            return;
+        }
+        // Written by another process or left over from before a restart
+        try {
+            trackLocked(key, Files.size(resolve(key)));
+        } catch (IOException e) {
+            log.debug("Could not read size of cached blob {}", key, e);
+        }
+    }
+
+    private synchronized void track(String key, long size) {
+        trackLocked(key, size);
+    }
+
+    private void trackLocked(String key, long size) {
+        CacheEntry previous = entries.put(key, new CacheEntry(size));
+        totalBytes += size - (previous != null ? previous.size : 0);
+        evictIfNeeded();
+    }
+
+    private synchronized void evict(String key) throws IOException {
+        CacheEntry entry = entries.remove(key);
+        if (entry != null) {
+            totalBytes -= entry.size;
+        }
+        Files.deleteIfExists(resolve(key));
+    }
+
+    /**
+     * Removes least recently used files until the cache fits, stopping at the first file used
+     * within the pin duration: it, and every file after it, may still be being read.
+     */
+    private void evictIfNeeded() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> eldest = iterator.next();
+            if (now - eldest.getValue().lastUsed < pinNanos) {
+                log.debug("Blob cache over its limit ({} bytes) with only recently used files left", totalBytes);
+                break;
+            }
+            try {
+                Files.deleteIfExists(resolve(eldest.getKey()));
+            } catch (IOException e) {
+                log.warn("Failed to evict cached blob {}", eldest.getKey(), e);
+                continue;
+            }
+            totalBytes -= eldest.getValue().size;
+            iterator.remove();
+        }
+    }
+
+    private synchronized void scan() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(path -> !path.startsWith(tempDirectory))
+                    .forEach(path -> {
+                        try {
+                            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                            if (attributes.isRegularFile()) {
+                                CacheEntry entry = new CacheEntry(attributes.size());
+                                // Files from before a restart are not in use yet
+                                entry.lastUsed = System.nanoTime() - pinNanos;
+                                entries.put(root.relativize(path).toString().replace('\\', '/'), entry);
+                                totalBytes += attributes.size();
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to scan blob cache at {}", root, e);
+        }
+        log.info("Blob cache holds {} files ({} bytes, limit {})", entries.size(), totalBytes, maxBytes);
+        evictIfNeeded();
+    }
+
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.startsWith(tempDirectory)) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,89 @@
+package com.wristwatch.shop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+
+/**
+ * Writes the catalog straight from a forward-only database cursor, so memory use
+ * does not depend on the number of products. The output columns match what
+ * {@link CatalogImportService} accepts.
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogExportService {
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final String EXPORT_SQL =
+            "SELECT p.id, p.name, p.description, p.price, p.stock, p.category_id, c.name AS category_name, " +
+            "p.image_url, p.is_active " +
+            "FROM product p LEFT JOIN category c ON c.id = p.category_id " +
+            "ORDER BY p.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    public void exportCatalog(OutputStream output, CatalogImportService.Format format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (format == CatalogImportService.Format.CSV) {
+            CsvSupport.writeRecord(writer, "id", "name", "description", "price", "stock",
+                    "category_id", "category_name", "image_url", "is_active");
+        }
+
+        RowCallbackHandler rowHandler = rs -> {
+            try {
+                if (format == CatalogImportService.Format.CSV) {
+                    CsvSupport.writeRecord(writer, rs.getLong("id"), rs.getString("name"), rs.getString("description"),
+                            rs.getBigDecimal("price"), rs.getInt("stock"), rs.getObject("category_id"),
+                            rs.getString("category_name"), rs.getString("image_url"), rs.getObject("is_active"));
+                } else {
+                    ObjectNode node = objectMapper.createObjectNode();
+                    node.put("id", rs.getLong("id"));
+                    node.put("name", rs.getString("name"));
+                    node.put("description", rs.getString("description"));
+                    node.put("price", rs.getBigDecimal("price"));
+                    node.put("stock", rs.getInt("stock"));
+                    node.put("category_id", (Long) rs.getObject("category_id", Long.class));
+                    node.put("category_name", rs.getString("category_name"));
+                    node.put("image_url", rs.getString("image_url"));
+                    node.put("is_active", (Boolean) rs.getObject("is_active", Boolean.class));
+                    writer.write(objectMapper.writeValueAsString(node));
+                    writer.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        // PostgreSQL only honours the fetch size inside a transaction, otherwise it buffers the whole result
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        try {
+            transaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement statement = con.prepareStatement(EXPORT_SQL);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, rowHandler));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.flush();
+    }
+}
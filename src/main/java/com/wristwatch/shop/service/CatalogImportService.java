@@ -0,0 +1,375 @@
+package com.wristwatch.shop.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wristwatch.shop.dto.CatalogImportReportDto;
+import com.wristwatch.shop.entity.Category;
+import com.wristwatch.shop.event.CatalogChangedEvent;
+import com.wristwatch.shop.exception.UploadRejectedException;
+import com.wristwatch.shop.repository.CategoryRepository;
+import com.wristwatch.shop.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams a CSV or JSON-lines catalog into the product table. Rows are parsed one at a time,
+ * validated against a category map loaded once per import, and upserted by product name in
+ * JDBC batches, each in its own transaction. The upsert relies on the unique index on
+ * {@code product.name}, so concurrent imports cannot create duplicates. A CSV header missing a
+ * required column rejects the whole file, and a name repeated within one import is reported
+ * as an error on the later row, so every processed row is counted exactly once.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogImportService {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final List<String> CATEGORY_COLUMNS = List.of("categoryid", "category_id", "category", "category_name");
+
+    // Rows without an image keep the one the product already has
+    private static final String UPSERT_SQL =
+            "INSERT INTO product (name, description, price, stock, category_id, image_url, is_active, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, true, ?, ?) " +
+            "ON CONFLICT (name) DO UPDATE SET description = EXCLUDED.description, price = EXCLUDED.price, " +
+            "stock = EXCLUDED.stock, category_id = EXCLUDED.category_id, " +
+            "image_url = COALESCE(EXCLUDED.image_url, product.image_url), " +
+            "is_active = true, updated_at = EXCLUDED.updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        CSV, JSONL
+    }
+
+    private record ImportRow(long line, String name, String description, BigDecimal price,
+                             Integer stock, Long categoryId, String imageUrl) {
+    }
+
+    /**
+     * Per-import state: the category map, and the line each product name was first seen on.
+     */
+    private record ImportContext(CategoryLookup categories, Map<String, Long> firstLineByName) {
+    }
+
+    public CatalogImportReportDto importCatalog(InputStream input, Format format) throws IOException {
+        ImportContext context = new ImportContext(loadCategories(), new HashMap<>());
+        CatalogImportReportDto report = new CatalogImportReportDto();
+        List<ImportRow> batch = new ArrayList<>(BATCH_SIZE);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            if (format == Format.CSV) {
+                readCsv(reader, context, report, batch);
+            } else {
+                readJsonLines(reader, context, report, batch);
+            }
+        }
+
+        flush(batch, report);
+        log.info("Catalog import finished: processed={}, inserted={}, updated={}, failed={}",
+                report.getProcessed(), report.getInserted(), report.getUpdated(), report.getFailed());
+        return report;
+    }
+
+    private void readCsv(BufferedReader reader, ImportContext context,
+                         CatalogImportReportDto report, List<ImportRow> batch) throws IOException {
+        List<String> header = CsvSupport.readRecord(reader);
+        if (header == null) {
+            return;
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        validateHeader(columns.keySet());
+
+        long line = 1;
+        List<String> record;
+        while ((record = CsvSupport.readRecord(reader)) != null) {
+            line++;
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            Map<String, String> values = new HashMap<>();
+            for (Map.Entry<String, Integer> column : columns.entrySet()) {
+                if (column.getValue() < record.size()) {
+                    values.put(column.getKey(), record.get(column.getValue()));
+                }
+            }
+            accept(line, values, context, report, batch);
+        }
+    }
+
+    /**
+     * Rejects the file before any row is read if a column every row needs is missing.
+     */
+    private void validateHeader(Set<String> columns) {
+        List<String> missing = new ArrayList<>();
+        for (String required : List.of("name", "price", "stock")) {
+            if (!columns.contains(required)) {
+                missing.add(required);
+            }
+        }
+        if (CATEGORY_COLUMNS.stream().noneMatch(columns::contains)) {
+            missing.add(String.join(" or ", CATEGORY_COLUMNS));
+        }
+        if (!missing.isEmpty()) {
+            throw new UploadRejectedException(HttpStatus.BAD_REQUEST,
+                    "CSV header is missing required columns: " + String.join(", ", missing));
+        }
+    }
+
+    private void readJsonLines(BufferedReader reader, ImportContext context,
+                               CatalogImportReportDto report, List<ImportRow> batch) throws IOException {
+        long line = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+
+            Map<String, String> values = new HashMap<>();
+            try {
+                JsonNode node = objectMapper.readTree(text);
+                node.fields().forEachRemaining(field -> values.put(
+                        field.getKey().toLowerCase(Locale.ROOT),
+                        field.getValue().isNull() ? null : field.getValue().asText()));
+            } catch (IOException e) {
+                report.setProcessed(report.getProcessed() + 1);
+                recordError(report, line, null, "Invalid JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            accept(line, values, context, report, batch);
+        }
+    }
+
+    private void accept(long line, Map<String, String> values, ImportContext context,
+                        CatalogImportReportDto report, List<ImportRow> batch) {
+        report.setProcessed(report.getProcessed() + 1);
+        String name = trimToNull(values.get("name"));
+
+        try {
+            if (name == null) {
+                throw new IllegalArgumentException("Product name is required");
+            }
+            if (name.length() > 255) {
+                throw new IllegalArgumentException("Product name must not exceed 255 characters");
+            }
+
+            String description = trimToNull(values.get("description"));
+            if (description != null && description.length() > 2000) {
+                throw new IllegalArgumentException("Description must not exceed 2000 characters");
+            }
+
+            BigDecimal price = parsePrice(values.get("price"));
+            Integer stock = parseStock(values.get("stock"));
+            Long categoryId = context.categories().resolve(firstNonBlank(values.get("categoryid"), values.get("category_id"),
+                    values.get("category"), values.get("category_name")));
+
+            String imageUrl = trimToNull(firstNonBlank(values.get("imageurl"), values.get("image_url")));
+            if (imageUrl != null && imageUrl.length() > 500) {
+                throw new IllegalArgumentException("Image URL must not exceed 500 characters");
+            }
+
+            // The upsert would fold repeated names into one product, so only the first row is applied
+            Long firstLine = context.firstLineByName().putIfAbsent(name, line);
+            if (firstLine != null) {
+                throw new IllegalArgumentException("Duplicate product name, already imported from line " + firstLine);
+            }
+
+            batch.add(new ImportRow(line, name, description, price, stock, categoryId, imageUrl));
+        } catch (IllegalArgumentException e) {
+            recordError(report, line, name, e.getMessage());
+            return;
+        }
+
+        if (batch.size() >= BATCH_SIZE) {
+            flush(batch, report);
+        }
+    }
+
+    private void flush(List<ImportRow> batch, CatalogImportReportDto report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.executeWithoutResult(status -> upsert(batch, report));
+        } catch (DataAccessException e) {
+            log.error("Catalog import batch failed", e);
+            for (ImportRow row : batch) {
+                recordError(report, row.line(), row.name(), "Batch failed: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+
+        batch.clear();
+    }
+
+    /**
+     * Upserts one batch; names are unique within an import, so each row is one product.
+     */
+    private void upsert(List<ImportRow> batch, CatalogImportReportDto report) {
+        Set<String> names = new HashSet<>();
+        for (ImportRow row : batch) {
+            names.add(row.name());
+        }
+        // Only used to report inserted versus updated; the upsert itself resolves races on the name
+        Set<String> existingNames = findIdsByName(names).keySet();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> rows = new ArrayList<>();
+        int updated = 0;
+        for (ImportRow row : batch) {
+            if (existingNames.contains(row.name())) {
+                updated++;
+            }
+            rows.add(new Object[]{row.name(), row.description(), row.price(), row.stock(),
+                    row.categoryId(), row.imageUrl(), now, now});
+        }
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+
+        List<Long> changedIds = new ArrayList<>(findIdsByName(names).values());
+        eventPublisher.publishEvent(new CatalogChangedEvent(changedIds));
+
+        report.setUpdated(report.getUpdated() + updated);
+        report.setInserted(report.getInserted() + rows.size() - updated);
+    }
+
+    private Map<String, Long> findIdsByName(Set<String> names) {
+        Map<String, Long> ids = new HashMap<>();
+        for (Object[] row : productRepository.findIdsByNameIn(names)) {
+            ids.putIfAbsent((String) row[0], (Long) row[1]);
+        }
+        return ids;
+    }
+
+    private CategoryLookup loadCategories() {
+        CategoryLookup lookup = new CategoryLookup();
+        for (Category category : categoryRepository.findAll()) {
+            lookup.ids.add(category.getId());
+            lookup.idsByName.put(category.getName().trim().toLowerCase(Locale.ROOT), category.getId());
+        }
+        return lookup;
+    }
+
+    private void recordError(CatalogImportReportDto report, long line, String name, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new CatalogImportReportDto.RowErrorDto(line, name, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private BigDecimal parsePrice(String value) {
+        String text = trimToNull(value);
+        if (text == null) {
+            throw new IllegalArgumentException("Price is required");
+        }
+        BigDecimal price;
+        try {
+            price = new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price: " + text);
+        }
+        if (price.compareTo(new BigDecimal("0.01")) < 0) {
+            throw new IllegalArgumentException("Price must be greater than 0");
+        }
+        if (price.scale() > 2 || price.precision() - price.scale() > 8) {
+            throw new IllegalArgumentException("Price format is invalid");
+        }
+        return price;
+    }
+
+    private Integer parseStock(String value) {
+        String text = trimToNull(value);
+        if (text == null) {
+            throw new IllegalArgumentException("Stock is required");
+        }
+        int stock;
+        try {
+            stock = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid stock: " + text);
+        }
+        if (stock < 0) {
+            throw new IllegalArgumentException("Stock cannot be negative");
+        }
+        return stock;
+    }
+
+    private static String firstNonBlank(String... values) {
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static class CategoryLookup {
+        private final Set<Long> ids = new HashSet<>();
+        private final Map<String, Long> idsByName = new HashMap<>();
+
+        Long resolve(String reference) {
+            String text = trimToNull(reference);
+            if (text == null) {
+                throw new IllegalArgumentException("Category is required");
+            }
+            try {
+                Long id = Long.parseLong(text);
+                if (ids.contains(id)) {
+                    return id;
+                }
+            } catch (NumberFormatException e) {
+                // Not an id, fall through to name lookup
+            }
+            Long id = idsByName.get(text.toLowerCase(Locale.ROOT));
+            if (id == null) {
+                throw new IllegalArgumentException("Category not found: " + text);
+            }
+            return id;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.wristwatch.shop.service;
+
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Detects the type of an uploaded or stored file from its leading bytes rather than
+ * trusting the file name or the client.
+ */
+public final class ContentTypeSniffer {
+
+    public static final int HEADER_LENGTH = 16;
+
+    private static final MediaType IMAGE_WEBP = new MediaType("image", "webp");
+    private static final MediaType IMAGE_HEIC = new MediaType("image", "heic");
+
+    private ContentTypeSniffer() {
+    }
+
+    /**
+     * Returns the detected type, or null if the bytes do not match a known format.
+     */
+    public static MediaType sniff(byte[] header, int length) {
+        if (startsWith(header, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return MediaType.IMAGE_JPEG;
+        }
+        if (startsWith(header, length, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return MediaType.IMAGE_PNG;
+        }
+        if (startsWith(header, length, 0, 'G', 'I', 'F', '8')) {
+            return MediaType.IMAGE_GIF;
+        }
+        if (startsWith(header, length, 0, 'R', 'I', 'F', 'F') && startsWith(header, length, 8, 'W', 'E', 'B', 'P')) {
+            return IMAGE_WEBP;
+        }
+        if (startsWith(header, length, 4, 'f', 't', 'y', 'p', 'h', 'e', 'i')) {
+            return IMAGE_HEIC;
+        }
+        if (startsWith(header, length, 0, '%', 'P', 'D', 'F', '-')) {
+            return MediaType.APPLICATION_PDF;
+        }
+        return null;
+    }
+
+    public static MediaType sniff(Path file) throws IOException {
+        byte[] header = new byte[HEADER_LENGTH];
+        int length;
+        try (InputStream input = Files.newInputStream(file)) {
+            length = input.readNBytes(header, 0, HEADER_LENGTH);
+        }
+        return sniff(header, length);
+    }
+
+    /**
+     * The usual file extension for a detected type.
+     */
+    public static String extensionFor(MediaType mediaType) {
+        if (MediaType.IMAGE_JPEG.equals(mediaType)) {
+            return ".jpg";
+        } else if (MediaType.IMAGE_PNG.equals(mediaType)) {
+            return ".png";
+        } else if (MediaType.IMAGE_GIF.equals(mediaType)) {
+            return ".gif";
+        } else if (IMAGE_WEBP.equals(mediaType)) {
+            return ".webp";
+        } else if (IMAGE_HEIC.equals(mediaType)) {
+            return ".heic";
+        } else if (MediaType.APPLICATION_PDF.equals(mediaType)) {
+            return ".pdf";
+        }
+        return ".bin";
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, int... expected) {
+        if (length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if ((header[offset + i] & 0xFF) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,146 @@
+package com.wristwatch.shop.service;
+
+import com.wristwatch.shop.dto.CohortReportDto;
+import com.wristwatch.shop.entity.AnalyticsWatermark;
+import com.wristwatch.shop.entity.CohortSummary;
+import com.wristwatch.shop.repository.AnalyticsWatermarkRepository;
+import com.wristwatch.shop.repository.CohortSummaryRepository;
+import com.wristwatch.shop.repository.CustomerLifetimeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Computes customer lifetime value and monthly acquisition cohorts. Each run only recomputes
+ * the customers whose orders changed since the stored watermark, then re-aggregates the
+ * cohorts those customers belong to. A customer's cohort is the month of their first paid order.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CustomerAnalyticsService {
+
+    private static final String JOB_NAME = "customer-cohorts";
+    private static final LocalDateTime EPOCH = LocalDate.of(2000, 1, 1).atStartOfDay();
+    private static final int CHUNK_SIZE = 1000;
+
+    // Orders stamped just before a run may commit after it; recomputing a customer is idempotent
+    private static final long OVERLAP_MINUTES = 5;
+
+    private final CustomerLifetimeRepository customerLifetimeRepository;
+    private final CohortSummaryRepository cohortSummaryRepository;
+    private final AnalyticsWatermarkRepository analyticsWatermarkRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(fixedDelayString = "${analytics.cohorts.interval-ms:900000}",
+               initialDelayString = "${analytics.cohorts.initial-delay-ms:60000}")
+    public void runIncremental() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDateTime watermark = analyticsWatermarkRepository.findById(JOB_NAME)
+                    .map(AnalyticsWatermark::getProcessedUntil)
+                    .orElse(EPOCH);
+            LocalDateTime from = watermark.equals(EPOCH) ? watermark : watermark.minusMinutes(OVERLAP_MINUTES);
+            LocalDateTime until = LocalDateTime.now();
+
+            List<Long> userIds = customerLifetimeRepository.findUserIdsWithOrdersChangedBetween(from, until);
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            for (int start = 0; start < userIds.size(); start += CHUNK_SIZE) {
+                List<Long> chunk = userIds.subList(start, Math.min(start + CHUNK_SIZE, userIds.size()));
+                transaction.executeWithoutResult(status -> recomputeCustomers(chunk));
+            }
+
+            transaction.executeWithoutResult(status -> {
+                AnalyticsWatermark mark = analyticsWatermarkRepository.findById(JOB_NAME).orElseGet(() -> {
+                    AnalyticsWatermark created = new AnalyticsWatermark();
+                    created.setJobName(JOB_NAME);
+                    return created;
+                });
+                mark.setProcessedUntil(until);
+                mark.setUpdatedAt(LocalDateTime.now());
+                analyticsWatermarkRepository.save(mark);
+            });
+
+            if (!userIds.isEmpty()) {
+                log.info("Customer analytics updated for {} customers (orders changed since {})", userIds.size(), from);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public CohortReportDto getCohortReport() {
+        CohortReportDto report = new CohortReportDto();
+        report.setProcessedUntil(analyticsWatermarkRepository.findById(JOB_NAME)
+                .map(AnalyticsWatermark::getProcessedUntil)
+                .orElse(null));
+
+        long totalCustomers = 0;
+        long repeatCustomers = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        for (CohortSummary summary : cohortSummaryRepository.findAllByOrderByCohortMonthDesc()) {
+            CohortReportDto.CohortDto cohort = new CohortReportDto.CohortDto();
+            cohort.setCohortMonth(summary.getCohortMonth());
+            cohort.setCustomers(summary.getCustomers());
+            cohort.setRepeatCustomers(summary.getRepeatCustomers());
+            cohort.setRepeatPurchaseRate(percent(summary.getRepeatCustomers(), summary.getCustomers()));
+            cohort.setPaidOrders(summary.getPaidOrders());
+            cohort.setRevenue(summary.getRevenue());
+            cohort.setAverageLifetimeValue(average(summary.getRevenue(), summary.getCustomers()));
+            report.getCohorts().add(cohort);
+
+            totalCustomers += summary.getCustomers();
+            repeatCustomers += summary.getRepeatCustomers();
+            totalRevenue = totalRevenue.add(summary.getRevenue());
+        }
+
+        report.setTotalCustomers(totalCustomers);
+        report.setRepeatCustomers(repeatCustomers);
+        report.setRepeatPurchaseRate(percent(repeatCustomers, totalCustomers));
+        report.setAverageLifetimeValue(average(totalRevenue, totalCustomers));
+        return report;
+    }
+
+    private void recomputeCustomers(List<Long> userIds) {
+        // A customer can move cohort (e.g. their first paid order was cancelled), so refresh old and new
+        Set<LocalDate> months = new HashSet<>(customerLifetimeRepository.findCohortMonthsByUserIdIn(userIds));
+        customerLifetimeRepository.deleteByUserIdIn(userIds);
+        customerLifetimeRepository.insertFromOrders(userIds);
+        months.addAll(customerLifetimeRepository.findCohortMonthsByUserIdIn(userIds));
+
+        if (!months.isEmpty()) {
+            cohortSummaryRepository.deleteByCohortMonthIn(months);
+            cohortSummaryRepository.insertFromCustomers(months);
+        }
+    }
+
+    private BigDecimal percent(long part, long whole) {
+        if (whole == 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(part * 100L).divide(BigDecimal.valueOf(whole), 2, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal average(BigDecimal total, long count) {
+        if (count == 0) {
+            return BigDecimal.ZERO;
+        }
+        return total.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,45 @@
+package com.wristwatch.shop.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * 64-bit difference hash (dHash) of an image. The image is shrunk to 9x8 grey pixels and
+ * each bit records whether a pixel is brighter than its right neighbour, so re-encoding,
+ * resizing and small crops or colour changes flip only a few bits.
+ */
+public final class DifferenceHash {
+
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 8;
+
+    private DifferenceHash() {
+    }
+
+    public static long compute(BufferedImage image) {
+        BufferedImage small = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = small.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, WIDTH, HEIGHT, java.awt.Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        long hash = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH - 1; x++) {
+                int left = small.getRaster().getSample(x, y, 0);
+                int right = small.getRaster().getSample(x + 1, y, 0);
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
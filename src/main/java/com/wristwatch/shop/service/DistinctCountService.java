@@ -0,0 +1,169 @@
+package com.wristwatch.shop.service;
+
+import com.wristwatch.shop.entity.DailyDistinctSketch;
+import com.wristwatch.shop.entity.DailyDistinctSketch.Metric;
+import com.wristwatch.shop.entity.Order;
+import com.wristwatch.shop.event.OrderStatusChangedEvent;
+import com.wristwatch.shop.repository.DailyDistinctSketchRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Approximate unique buyers and visitors per day using one {@link HyperLogLog} sketch per
+ * day and metric. New ids are added to in-memory sketches and merged into the stored ones
+ * every minute under a row lock, so flushes from several nodes never overwrite each other;
+ * ranges are answered by merging the daily sketches. Buyers are counted on the
+ * day the paid order was placed, like the sales rollups; visitors on the day of their activity.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DistinctCountService {
+
+    private static final String BUYERS_BACKFILL_SQL =
+            "SELECT CAST(o.created_at AS date) AS sketch_date, u.telegram_id " +
+            "FROM \"order\" o JOIN app_user u ON u.id = o.user_id WHERE o.status = 'PAID'";
+
+    private final DailyDistinctSketchRepository dailyDistinctSketchRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    // Unflushed additions only, modified inside compute() so a flush never removes a sketch mid-update
+    private final Map<DailyDistinctSketch.Key, HyperLogLog> pending = new ConcurrentHashMap<>();
+
+    public void recordVisitor(Long telegramId) {
+        record(Metric.VISITORS, LocalDate.now(), telegramId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.getNewStatus() == Order.OrderStatus.PAID && event.getCustomerTelegramId() != null
+                && event.getOrderCreatedAt() != null) {
+            record(Metric.BUYERS, event.getOrderCreatedAt().toLocalDate(), event.getCustomerTelegramId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillBuyersIfEmpty() {
+        if (dailyDistinctSketchRepository.existsByMetric(Metric.BUYERS)) {
+            return;
+        }
+
+        Map<LocalDate, HyperLogLog> sketches = new HashMap<>();
+        jdbcTemplate.query(BUYERS_BACKFILL_SQL, rs -> {
+            sketches.computeIfAbsent(rs.getDate("sketch_date").toLocalDate(), date -> new HyperLogLog())
+                    .add(rs.getLong("telegram_id"));
+        });
+        sketches.forEach((date, sketch) -> mergePending(key(date, Metric.BUYERS), sketch));
+        flush();
+        log.info("Backfilled unique buyer sketches for {} days", sketches.size());
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.distinct.flush-interval-ms:60000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (DailyDistinctSketch.Key key : pending.keySet()) {
+            HyperLogLog additions = pending.remove(key);
+            if (additions == null) {
+                continue;
+            }
+            try {
+                transaction.executeWithoutResult(status -> {
+                    String metric = key.getMetric().name();
+                    if (dailyDistinctSketchRepository.insertIfAbsent(key.getSketchDate(), metric, additions.toBytes()) > 0) {
+                        return;
+                    }
+                    // The row lock keeps another node's flush from overwriting this merge
+                    DailyDistinctSketch stored = dailyDistinctSketchRepository.findForUpdate(key.getSketchDate(), metric)
+                            .orElseThrow(() -> new IllegalStateException("Sketch row disappeared"));
+                    HyperLogLog merged = HyperLogLog.fromBytes(stored.getRegisters());
+                    merged.merge(additions);
+                    stored.setRegisters(merged.toBytes());
+                    stored.setUpdatedAt(LocalDateTime.now());
+                    dailyDistinctSketchRepository.save(stored);
+                });
+            } catch (RuntimeException e) {
+                // Put the additions back so they are retried on the next flush
+                log.warn("Failed to flush distinct sketch {} {}", key.getSketchDate(), key.getMetric(), e);
+                mergePending(key, additions);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Estimated number of distinct ids over both dates, inclusive.
+     */
+    public long countDistinct(Metric metric, LocalDate startDate, LocalDate endDate) {
+        HyperLogLog union = new HyperLogLog();
+        for (DailyDistinctSketch sketch : dailyDistinctSketchRepository.findByMetricAndSketchDateBetween(metric, startDate, endDate)) {
+            union.merge(HyperLogLog.fromBytes(sketch.getRegisters()));
+        }
+        pending.forEach((key, sketch) -> {
+            // Racing with a concurrent add only means that add may not be counted yet
+            if (key.getMetric() == metric && !key.getSketchDate().isBefore(startDate) && !key.getSketchDate().isAfter(endDate)) {
+                union.merge(sketch);
+            }
+        });
+        return union.estimate();
+    }
+
+    public Map<String, Object> getUniqueCounts(LocalDate startDate, LocalDate endDate) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("startDate", startDate);
+        counts.put("endDate", endDate);
+        counts.put("uniqueBuyers", countDistinct(Metric.BUYERS, startDate, endDate));
+        counts.put("uniqueVisitors", countDistinct(Metric.VISITORS, startDate, endDate));
+        return counts;
+    }
+
+    private void record(Metric metric, LocalDate date, Long telegramId) {
+        if (telegramId == null) {
+            return;
+        }
+        pending.compute(key(date, metric), (k, sketch) -> {
+            HyperLogLog target = sketch != null ? sketch : new HyperLogLog();
+            target.add(telegramId);
+            return target;
+        });
+    }
+
+    private void mergePending(DailyDistinctSketch.Key key, HyperLogLog additions) {
+        pending.compute(key, (k, sketch) -> {
+            HyperLogLog target = sketch != null ? sketch : new HyperLogLog();
+            target.merge(additions);
+            return target;
+        });
+    }
+
+    private DailyDistinctSketch.Key key(LocalDate date, Metric metric) {
+        DailyDistinctSketch.Key key = new DailyDistinctSketch.Key();
+        key.setSketchDate(date);
+        key.setMetric(metric);
+        return key;
+    }
+}
@@ -0,0 +1,272 @@
+package com.wristwatch.shop.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Writes stored files to the response with ETag validation, single byte-range support and,
+ * on Tomcat, zero-copy {@code sendfile}. Elsewhere the body is copied with
+ * {@link FileChannel#transferTo}. When the caller knows the ETag up front (content-addressed
+ * blobs), a matching {@code If-None-Match} is answered with 304 before the file is looked up,
+ * so a revalidation never downloads it from a remote blob store. Small immutable files can
+ * be served from the {@link HotFileCache} instead of the disk.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileServingService {
+
+    public static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    public static final String PRIVATE_IMMUTABLE = "private, max-age=31536000, immutable";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final HotFileCache hotFileCache;
+
+    /**
+     * Supplies the local file to serve only once it is needed; null means it does not exist.
+     */
+    @FunctionalInterface
+    public interface FileSource {
+        Path get() throws IOException;
+    }
+
+    /**
+     * Serves {@code file}. A null {@code etag} derives a weak one from the file's size and modification time.
+     */
+    public void serve(Path file, String etag, String cacheControl,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(null, () -> file, etag, cacheControl, request, response);
+    }
+
+    public void serve(FileSource source, String etag, String cacheControl,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(null, source, etag, cacheControl, request, response);
+    }
+
+    /**
+     * Like {@link #serve(FileSource, String, String, HttpServletRequest, HttpServletResponse)}, but small
+     * files are kept in the {@link HotFileCache} under {@code cacheKey}. Only pass a key for content
+     * that never changes, such as a blob file name.
+     */
+    public void serve(String cacheKey, FileSource source, String etag, String cacheControl,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (etag != null && notModified(etag, cacheControl, request, response)) {
+            return;
+        }
+
+        HotFileCache.CachedFile cached = cacheKey != null ? hotFileCache.get(cacheKey) : null;
+        if (cached != null) {
+            long[] bounds = writeHeaders(cached.size(), cached.lastModified(), cached.contentType(),
+                    etag != null ? etag : weakTag(cached.size(), cached.lastModified()), cacheControl, request, response);
+            if (bounds != null) {
+                ByteBuffer body = cached.data();
+                body.limit((int) bounds[1] + 1).position((int) bounds[0]);
+                WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+                while (body.hasRemaining()) {
+                    output.write(body);
+                }
+            }
+            return;
+        }
+
+        Path file = source.get();
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!attributes.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (etag == null) {
+            etag = weakTag(size, lastModified);
+            if (notModified(etag, cacheControl, request, response)) {
+                return;
+            }
+        }
+
+        String contentType = detectContentType(file).toString();
+        if (cacheKey != null) {
+            hotFileCache.offer(cacheKey, file, size, contentType, lastModified);
+        }
+
+        long[] bounds = writeHeaders(size, lastModified, contentType, etag, cacheControl, request, response);
+        if (bounds == null) {
+            return;
+        }
+        long start = bounds[0];
+        long end = bounds[1];
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat sends the file from the kernel once the servlet returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = end - start + 1;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, output);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    /**
+     * Sets the status and headers for the whole file or the requested range. Returns the
+     * inclusive {start, end} of the body to write, or null if no body follows.
+     */
+    private long[] writeHeaders(long size, long lastModified, String contentType, String etag, String cacheControl,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setContentType(contentType);
+
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return null;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return null;
+        }
+        return new long[]{start, end};
+    }
+
+    private String weakTag(long size, long lastModified) {
+        return "W/\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private boolean notModified(String etag, String cacheControl,
+                                HttpServletRequest request, HttpServletResponse response) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaqueTag(tag).equals(opaque)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                response.setHeader(HttpHeaders.ETAG, etag);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-None-Match uses weak comparison, so the W/ prefix is ignored.
+     */
+    private String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    /**
+     * Returns {start, end} for a satisfiable single range, an empty array to serve the whole
+     * file (multiple ranges or an unsupported unit), or null if the range cannot be satisfied.
+     */
+    private long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.contains(",")) {
+            return new long[0];
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? size - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), size - 1);
+            }
+            if (start >= size || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private MediaType detectContentType(Path file) {
+        try {
+            MediaType sniffed = ContentTypeSniffer.sniff(file);
+            if (sniffed != null) {
+                return sniffed;
+            }
+        } catch (IOException e) {
+            log.debug("Could not read {} to detect its type", file, e);
+        }
+        return MediaTypeFactory.getMediaType(file.getFileName().toString()).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+}
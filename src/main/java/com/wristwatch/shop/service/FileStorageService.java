@@ -1,66 +1,142 @@
 package com.wristwatch.shop.service;
 
+import com.wristwatch.shop.config.FileUploadConfig;
+import com.wristwatch.shop.exception.UploadRejectedException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.io.InputStream;
+import java.util.Set;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class FileStorageService {
     
-    @Value("${file.upload.dir:./uploads}")
-    private String uploadDir;
+    private static final Set<MediaType> IMAGE_TYPES = Set.of(MediaType.IMAGE_JPEG, MediaType.IMAGE_PNG,
+            MediaType.IMAGE_GIF, new MediaType("image", "webp"), new MediaType("image", "heic"));
+    
+    private final ImageVariantService imageVariantService;
+    private final BlobStorageService blobStorageService;
+    private final FileUploadConfig fileUploadConfig;
     
     public String storePaymentProof(MultipartFile file) throws IOException {
-        return storeFile(file, "payment-proofs");
+        try (InputStream input = file.getInputStream()) {
+            return storeUpload(input, file.getSize()).path().toString();
+        }
+    }
+    
+    /**
+     * Stores a payment proof streamed straight from the request body.
+     *
+     * @param contentLength the declared length, or -1 if unknown
+     */
+    public String storePaymentProof(InputStream input, long contentLength) throws IOException {
+        return storeUpload(input, contentLength).path().toString();
     }
     
     public String storeProductImage(MultipartFile file) throws IOException {
-        return storeFile(file, "products");
+        BlobStorageService.StoredBlob blob;
+        try (InputStream input = file.getInputStream()) {
+            blob = storeUpload(input, file.getSize());
+        }
+        generateVariantsIfMissing(blob);
+        return blob.path().toString();
     }
     
-    private String storeFile(MultipartFile file, String subDirectory) throws IOException {
-        if (file.isEmpty()) {
-            throw new IOException("Cannot store empty file");
+    /**
+     * Variants of deduplicated images already exist next to the original, so they are only generated once.
+     */
+    public void generateVariantsIfMissing(BlobStorageService.StoredBlob blob) throws IOException {
+        if (blob.created() || !blobStorageService.exists(imageVariantService.variantPath(blob.path(), ImageVariantService.Variant.THUMBNAIL))) {
+            imageVariantService.generateVariantsAsync(blob.path());
+        }
+    }
+    
+    /**
+     * Checks the declared size and the leading magic bytes before anything is written, then
+     * streams the rest into the blob store, aborting as soon as the size limit is passed.
+     * The extension comes from the detected type, never from the client's file name.
+     */
+    private BlobStorageService.StoredBlob storeUpload(InputStream input, long contentLength) throws IOException {
+        long maxBytes = DataSize.parse(fileUploadConfig.getMaxSize()).toBytes();
+        if (contentLength > maxBytes) {
+            throw new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "File is larger than " + fileUploadConfig.getMaxSize());
         }
         
-        // Create directory if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir, subDirectory);
-        Files.createDirectories(uploadPath);
-        
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null ? 
-            originalFilename.substring(originalFilename.lastIndexOf(".")) : ".jpg";
-        String filename = UUID.randomUUID().toString() + extension;
+        BufferedInputStream buffered = new BufferedInputStream(input);
+        buffered.mark(ContentTypeSniffer.HEADER_LENGTH);
+        byte[] header = new byte[ContentTypeSniffer.HEADER_LENGTH];
+        int headerLength = buffered.readNBytes(header, 0, header.length);
+        buffered.reset();
         
-        // Store file
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        if (headerLength == 0) {
+            throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "File is empty");
+        }
+        MediaType type = ContentTypeSniffer.sniff(header, headerLength);
+        if (type == null || !IMAGE_TYPES.contains(type)) {
+            throw new UploadRejectedException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                    "Only JPEG, PNG, GIF, WebP and HEIC images are accepted");
+        }
         
-        log.info("Stored file: {}", filePath.toString());
-        return filePath.toString();
+        return blobStorageService.store(new SizeLimitedInputStream(buffered, maxBytes, fileUploadConfig.getMaxSize()),
+                ContentTypeSniffer.extensionFor(type));
     }
     
-    public boolean deleteFile(String filePath) {
-        try {
-            Path path = Paths.get(filePath);
-            return Files.deleteIfExists(path);
-        } catch (IOException e) {
-            log.error("Error deleting file: {}", filePath, e);
-            return false;
+    /**
+     * Fails the read that takes the stream past {@code maxBytes}, for bodies without a
+     * trustworthy Content-Length.
+     */
+    private static class SizeLimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private final String maxSize;
+        private long count;
+        
+        SizeLimitedInputStream(InputStream input, long maxBytes, String maxSize) {
+            super(input);
+            this.maxBytes = maxBytes;
+            this.maxSize = maxSize;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+        
+        private void count(long bytes) {
+            count += bytes;
+            if (count > maxBytes) {
+                throw new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE, "File is larger than " + maxSize);
+            }
         }
-    }
-    
-    public boolean fileExists(String filePath) {
-        return Files.exists(Paths.get(filePath));
     }
 }
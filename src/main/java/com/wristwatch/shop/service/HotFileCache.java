@@ -0,0 +1,279 @@
+package com.wristwatch.shop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the bytes of frequently served immutable files in direct buffers, outside the Java heap.
+ * Entries are keyed by blob file name ({@code <hash>[_<variant>].<ext>}), so they never go stale.
+ * <p>
+ * Admission follows W-TinyLFU: new files enter a small LRU window, and a file leaving the window
+ * only displaces the least recently used file of the main area if it has been requested more
+ * often, as estimated by a count-min sketch. One-off requests for large catalogue images therefore
+ * cannot flush out the few hero images that are requested all the time.
+ */
+@Component
+@Slf4j
+public class HotFileCache {
+
+    private static final double WINDOW_SHARE = 0.01;
+
+    private final long maxBytes;
+    private final long maxFileBytes;
+    private final long windowMaxBytes;
+
+    // Both access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CachedFile> window = new LinkedHashMap<>(64, 0.75f, true);
+    private final LinkedHashMap<String, CachedFile> main = new LinkedHashMap<>(256, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long windowBytes;
+    private long mainBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicLong admissions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * A cached file; {@link #data()} returns a fresh read-only view for every reader.
+     */
+    public record CachedFile(ByteBuffer buffer, String contentType, long lastModified) {
+        public ByteBuffer data() {
+            return buffer.duplicate();
+        }
+
+        public long size() {
+            return buffer.capacity();
+        }
+    }
+
+    public HotFileCache(@Value("${files.hot-cache.max-size:64MB}") DataSize maxSize,
+                        @Value("${files.hot-cache.max-file-size:1MB}") DataSize maxFileSize) {
+        this.maxBytes = maxSize.toBytes();
+        this.maxFileBytes = Math.min(maxFileSize.toBytes(), maxBytes);
+        this.windowMaxBytes = Math.max(maxFileBytes, (long) (maxBytes * WINDOW_SHARE));
+        // Sized for files of around 16KB, the typical card variant
+        this.sketch = new FrequencySketch((int) Math.max(1024, maxBytes / (16 * 1024)));
+    }
+
+    public boolean isCacheable(long size) {
+        return maxBytes > 0 && size > 0 && size <= maxFileBytes;
+    }
+
+    public CachedFile get(String key) {
+        CachedFile cached;
+        synchronized (this) {
+            sketch.increment(key);
+            cached = main.get(key);
+            if (cached == null) {
+                cached = window.get(key);
+            }
+        }
+        if (cached == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        bytesServed.addAndGet(cached.size());
+        return cached;
+    }
+
+    /**
+     * Loads a file that was just served from disk. The file is read before taking the lock;
+     * a file that is already cached or too large is ignored.
+     */
+    public void offer(String key, Path file, long size, String contentType, long lastModified) {
+        if (!isCacheable(size)) {
+            return;
+        }
+        synchronized (this) {
+            if (main.containsKey(key) || window.containsKey(key)) {
+                return;
+            }
+        }
+
+        ByteBuffer buffer;
+        try {
+            buffer = read(file, size);
+        } catch (IOException e) {
+            log.debug("Could not cache {}", file, e);
+            return;
+        }
+        if (buffer == null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (main.containsKey(key) || window.containsKey(key)) {
+                return;
+            }
+            window.put(key, new CachedFile(buffer.asReadOnlyBuffer(), contentType, lastModified));
+            windowBytes += size;
+            drainWindow();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        long requests = hits.get() + misses.get();
+        synchronized (this) {
+            metrics.put("entries", window.size() + main.size());
+            metrics.put("bytesCached", windowBytes + mainBytes);
+        }
+        metrics.put("maxBytes", maxBytes);
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("hitRate", requests > 0 ? (double) hits.get() / requests : 0.0);
+        metrics.put("bytesServed", bytesServed.get());
+        metrics.put("admissions", admissions.get());
+        metrics.put("rejections", rejections.get());
+        metrics.put("evictions", evictions.get());
+        return metrics;
+    }
+
+    /**
+     * Moves files that overflow the window into the main area if they win against its victims.
+     */
+    private void drainWindow() {
+        Iterator<Map.Entry<String, CachedFile>> candidates = window.entrySet().iterator();
+        while (windowBytes > windowMaxBytes && candidates.hasNext()) {
+            Map.Entry<String, CachedFile> candidate = candidates.next();
+            candidates.remove();
+            windowBytes -= candidate.getValue().size();
+            admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    private void admit(String key, CachedFile file) {
+        long mainMaxBytes = maxBytes - windowMaxBytes;
+        if (mainBytes + file.size() > mainMaxBytes) {
+            if (main.isEmpty()) {
+                rejections.incrementAndGet();
+                return;
+            }
+            Map.Entry<String, CachedFile> victim = main.entrySet().iterator().next();
+            if (sketch.frequency(key) <= sketch.frequency(victim.getKey())) {
+                rejections.incrementAndGet();
+                return;
+            }
+            Iterator<Map.Entry<String, CachedFile>> victims = main.entrySet().iterator();
+            while (mainBytes + file.size() > mainMaxBytes && victims.hasNext()) {
+                mainBytes -= victims.next().getValue().size();
+                victims.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        main.put(key, file);
+        mainBytes += file.size();
+        admissions.incrementAndGet();
+    }
+
+    private ByteBuffer read(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != size) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    return null;
+                }
+            }
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters (sixteen per long) that halves every counter after
+     * a sample period, so popularity from long ago fades out.
+     */
+    private static class FrequencySketch {
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+                0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int mask;
+        private final int samplePeriod;
+        private int samples;
+
+        FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(Math.max(64, expectedEntries) - 1) << 1;
+            this.table = new long[width];
+            this.mask = width - 1;
+            this.samplePeriod = 10 * width;
+        }
+
+        void increment(String key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int row = 0; row < 4; row++) {
+                added |= incrementAt(indexOf(hash, row), counterOf(hash, row));
+            }
+            if (added && ++samples >= samplePeriod) {
+                reset();
+            }
+        }
+
+        int frequency(String key) {
+            int hash = spread(key.hashCode());
+            int frequency = Integer.MAX_VALUE;
+            for (int row = 0; row < 4; row++) {
+                int shift = counterOf(hash, row) << 2;
+                frequency = Math.min(frequency, (int) ((table[indexOf(hash, row)] >>> shift) & 0xfL));
+            }
+            return frequency;
+        }
+
+        private boolean incrementAt(int index, int counter) {
+            int shift = counter << 2;
+            long value = (table[index] >>> shift) & 0xfL;
+            if (value == 15) {
+                return false;
+            }
+            table[index] += 1L << shift;
+            return true;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            samples /= 2;
+        }
+
+        private int indexOf(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return (int) h & mask;
+        }
+
+        /**
+         * Which of the 16 four-bit counters in the long the row uses.
+         */
+        private int counterOf(int hash, int row) {
+            return (hash >>> (row << 3)) & 0xf;
+        }
+
+        private int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.wristwatch.shop.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates resized JPEG variants of product images on a bounded worker pool.
+ * The original is decoded once and each smaller variant is scaled from the previous one.
+ * Variants are written next to the original as {@code <name>_<variant>.jpg} and published
+ * to the blob store.
+ */
+@Service
+@Slf4j
+public class ImageVariantService {
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final ThreadPoolExecutor executor;
+    private final BlobStorageService blobStorageService;
+
+    public enum Variant {
+        FULL("full", 1280),
+        CARD("card", 480),
+        THUMBNAIL("thumb", 160);
+
+        private final String suffix;
+        private final int maxDimension;
+
+        Variant(String suffix, int maxDimension) {
+            this.suffix = suffix;
+            this.maxDimension = maxDimension;
+        }
+
+        public String getSuffix() {
+            return suffix;
+        }
+
+        public int getMaxDimension() {
+            return maxDimension;
+        }
+
+        public static Variant fromName(String name) {
+            for (Variant variant : values()) {
+                if (variant.name().equalsIgnoreCase(name) || variant.suffix.equalsIgnoreCase(name)) {
+                    return variant;
+                }
+            }
+            throw new IllegalArgumentException("Unknown image variant: " + name);
+        }
+    }
+
+    public ImageVariantService(BlobStorageService blobStorageService,
+                               @Value("${image.variants.workers:2}") int workers,
+                               @Value("${image.variants.queue-capacity:100}") int queueCapacity) {
+        this.blobStorageService = blobStorageService;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // A full queue pushes the work back onto the uploader instead of dropping it
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public void generateVariantsAsync(Path original) {
+        executor.execute(() -> {
+            try {
+                generateVariants(original);
+            } catch (Exception e) {
+                log.error("Failed to generate image variants for {}", original, e);
+            }
+        });
+    }
+
+    public void generateVariants(Path original) throws IOException {
+        Path local = blobStorageService.localFile(original);
+        if (local == null) {
+            log.warn("Skipping variants for {}: file not found", original);
+            return;
+        }
+
+        BufferedImage source = ImageIO.read(local.toFile());
+        if (source == null) {
+            log.warn("Skipping variants for {}: not a decodable image", original);
+            return;
+        }
+
+        BufferedImage current = toRgb(source);
+        for (Variant variant : Variant.values()) {
+            current = scaleToFit(current, variant.getMaxDimension());
+            Path target = variantPath(original, variant);
+            writeJpeg(current, target);
+            blobStorageService.publish(target);
+        }
+
+        log.info("Generated image variants for {}", original);
+    }
+
+    /**
+     * Returns a local copy of the stored variant if it exists, otherwise of the original file,
+     * or null if neither exists.
+     */
+    public Path resolve(Path original, Variant variant) throws IOException {
+        if (variant != null) {
+            Path variantFile = blobStorageService.localFile(variantPath(original, variant));
+            if (variantFile != null) {
+                return variantFile;
+            }
+        }
+        return blobStorageService.localFile(original);
+    }
+
+    public Path variantPath(Path original, Variant variant) {
+        String fileName = original.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String stem = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return original.resolveSibling(stem + "_" + variant.getSuffix() + ".jpg");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, java.awt.Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    private BufferedImage scaleToFit(BufferedImage image, int maxDimension) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int longest = Math.max(width, height);
+        if (longest <= maxDimension) {
+            return image;
+        }
+
+        double scale = (double) maxDimension / longest;
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam params = writer.getDefaultWriteParam();
+        params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        params.setCompressionQuality(JPEG_QUALITY);
+
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), params);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,242 @@
+package com.wristwatch.shop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wristwatch.shop.entity.Order;
+import com.wristwatch.shop.event.OrderStatusChangedEvent;
+import com.wristwatch.shop.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Pushes live sales counters to connected admin dashboards over Server-Sent Events.
+ * The counters are kept in memory and updated from order status events; at most one
+ * snapshot per second is built and the same payload is sent to every subscriber.
+ * Today's counters are periodically reloaded from the database under the same lock as the
+ * event handler, which also picks up orders handled by other nodes. Broadcasts run on their
+ * own thread, so neither long scheduled jobs nor a slow subscriber delay each other.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LiveDashboardService {
+
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 15_000;
+    private static final long BROADCAST_INTERVAL_MILLIS = 1_000;
+
+    private final OrderRepository orderRepository;
+    private final OrderStatusCounters orderStatusCounters;
+    private final ObjectMapper objectMapper;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final ScheduledExecutorService broadcaster = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dashboard-broadcast");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private LocalDate today = LocalDate.now();
+    private long ordersToday;
+    private long paidOrdersToday;
+    private BigDecimal revenueToday = BigDecimal.ZERO;
+    private Map<String, Long> statusDistribution = Map.of();
+    private long lastSentAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${statistics.counters.resync-interval-ms:60000}")
+    public synchronized void reload() {
+        LocalDate date = LocalDate.now();
+        LocalDateTime startOfDay = date.atStartOfDay();
+        long orders = orderRepository.countByCreatedAtGreaterThanEqual(startOfDay);
+
+        long paidOrders = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (Object[] row : orderRepository.sumPaidOrdersByDayBetween(startOfDay, date.plusDays(1).atStartOfDay())) {
+            paidOrders += ((Number) row[1]).longValue();
+            revenue = revenue.add(row[2] != null ? new BigDecimal(row[2].toString()) : BigDecimal.ZERO);
+        }
+
+        if (!date.equals(today) || orders != ordersToday || paidOrders != paidOrdersToday
+                || revenue.compareTo(revenueToday) != 0) {
+            today = date;
+            ordersToday = orders;
+            paidOrdersToday = paidOrders;
+            revenueToday = revenue;
+            dirty.set(true);
+        }
+
+        // The status counters resync on their own; push their corrections as well
+        Map<String, Long> distribution = orderStatusCounters.snapshot();
+        if (!distribution.equals(statusDistribution)) {
+            statusDistribution = distribution;
+            dirty.set(true);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void handleOrderStatusChanged(OrderStatusChangedEvent event) {
+        rollOverIfNewDay();
+        dirty.set(true);
+
+        if (event.getOrderCreatedAt() == null || !event.getOrderCreatedAt().toLocalDate().equals(today)) {
+            // Only the status distribution changes for orders placed on earlier days
+            return;
+        }
+        if (event.getOldStatus() == null) {
+            ordersToday++;
+        }
+
+        BigDecimal amount = event.getTotalAmount() != null ? event.getTotalAmount() : BigDecimal.ZERO;
+        if (event.getNewStatus() == Order.OrderStatus.PAID && event.getOldStatus() != Order.OrderStatus.PAID) {
+            paidOrdersToday++;
+            revenueToday = revenueToday.add(amount);
+        } else if (event.getOldStatus() == Order.OrderStatus.PAID && event.getNewStatus() != Order.OrderStatus.PAID) {
+            paidOrdersToday--;
+            revenueToday = revenueToday.subtract(amount);
+        }
+    }
+
+    public SseEmitter subscribe() {
+        // No timeout: the emitter lives until the client disconnects
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+
+        try {
+            emitter.send(statsEvent(toJson(snapshot())));
+        } catch (IOException e) {
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    @PostConstruct
+    public void startBroadcasting() {
+        broadcaster.scheduleAtFixedRate(this::broadcastQuietly, BROADCAST_INTERVAL_MILLIS,
+                BROADCAST_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void broadcast() {
+        if (emitters.isEmpty()) {
+            return;
+        }
+        if (!LocalDate.now().equals(today)) {
+            synchronized (this) {
+                rollOverIfNewDay();
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        if (dirty.getAndSet(false)) {
+            // Serialized once and shared by every subscriber
+            String json;
+            try {
+                json = toJson(snapshot());
+            } catch (JsonProcessingException e) {
+                log.error("Failed to serialize dashboard snapshot", e);
+                return;
+            }
+            send(() -> statsEvent(json));
+            lastSentAt = now;
+        } else if (now - lastSentAt >= HEARTBEAT_INTERVAL_MILLIS) {
+            // Keeps idle connections open through proxies
+            send(() -> SseEmitter.event().comment("heartbeat"));
+            lastSentAt = now;
+        }
+    }
+
+    public int getSubscriberCount() {
+        return emitters.size();
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("date", today);
+        snapshot.put("ordersToday", ordersToday);
+        snapshot.put("paidOrdersToday", paidOrdersToday);
+        snapshot.put("revenueToday", revenueToday);
+        snapshot.put("pendingVerifications", orderStatusCounters.get(Order.OrderStatus.AWAITING_VERIFICATION));
+        snapshot.put("statusDistribution", orderStatusCounters.snapshot());
+        snapshot.put("generatedAt", LocalDateTime.now());
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        broadcaster.shutdownNow();
+        emitters.forEach(SseEmitter::complete);
+        emitters.clear();
+    }
+
+    /**
+     * An exception escaping a scheduled task would cancel every later broadcast.
+     */
+    private void broadcastQuietly() {
+        try {
+            broadcast();
+        } catch (RuntimeException e) {
+            log.error("Dashboard broadcast failed", e);
+        }
+    }
+
+    private void rollOverIfNewDay() {
+        LocalDate now = LocalDate.now();
+        if (!now.equals(today)) {
+            today = now;
+            ordersToday = 0;
+            paidOrdersToday = 0;
+            revenueToday = BigDecimal.ZERO;
+            dirty.set(true);
+        }
+    }
+
+    private SseEmitter.SseEventBuilder statsEvent(String json) {
+        return SseEmitter.event().name("stats").data(json, MediaType.APPLICATION_JSON);
+    }
+
+    private String toJson(Map<String, Object> snapshot) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(snapshot);
+    }
+
+    /**
+     * An event builder can only be built once, so each subscriber gets its own around the shared payload.
+     */
+    private void send(Supplier<SseEmitter.SseEventBuilder> event) {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(event.get());
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping dashboard subscriber: {}", e.getMessage());
+                emitters.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
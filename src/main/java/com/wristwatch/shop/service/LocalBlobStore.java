@@ -0,0 +1,76 @@
+package com.wristwatch.shop.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Keeps blobs in a directory on the local file system. Only suitable for a single node.
+ */
+public class LocalBlobStore implements BlobStore {
+
+    private final Path root;
+
+    public LocalBlobStore(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        Path target = resolve(key);
+        if (target.equals(source.toAbsolutePath().normalize())) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        if (Files.exists(target)) {
+            Files.deleteIfExists(source);
+            return;
+        }
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // A concurrent upload of the same content got there first
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public Path fetch(String key) {
+        Path path = resolve(key);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public Optional<URL> presign(String key, Duration ttl) {
+        return Optional.empty();
+    }
+
+    private Path resolve(String key) {
+        Path path = root.resolve(key).toAbsolutePath().normalize();
+        if (!path.startsWith(root.toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return path;
+    }
+}
@@ -2,6 +2,7 @@ package com.wristwatch.shop.service;
 
 import com.wristwatch.shop.dto.*;
 import com.wristwatch.shop.entity.*;
+import com.wristwatch.shop.event.OrderStatusChangedEvent;
 import com.wristwatch.shop.event.PaymentProofUploadedEvent;
 import com.wristwatch.shop.event.PaymentVerificationEvent;
 import com.wristwatch.shop.repository.*;
@@ -26,6 +27,8 @@ public class OrderService {
     private final AppUserRepository appUserRepository;
     private final ProductRepository productRepository;
     private final ProductService productService;
+    private final SalesRollupService salesRollupService;
+    private final BlobStorageService blobStorageService;
     private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
@@ -99,6 +102,7 @@ public class OrderService {
             orderItemRepository.save(orderItem);
         }
 
+        publishStatusChanged(savedOrder, null);
         return convertToDto(savedOrder);
     }
 
@@ -110,12 +114,21 @@ public class OrderService {
         order.setStatus(status);
         orderRepository.save(order);
 
-        // If order is approved (PAID), reduce product stock
-        if (status == Order.OrderStatus.PAID && oldStatus != Order.OrderStatus.PAID) {
+        if (oldStatus != status) {
+            publishStatusChanged(order, oldStatus);
+        }
+
+        if (oldStatus != status && (status == Order.OrderStatus.PAID || oldStatus == Order.OrderStatus.PAID)) {
             List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
-            for (OrderItem item : orderItems) {
-                productService.reduceStock(item.getProduct().getId(), item.getQuantity());
+
+            // If order is approved (PAID), reduce product stock
+            if (status == Order.OrderStatus.PAID) {
+                for (OrderItem item : orderItems) {
+                    productService.reduceStock(item.getProduct().getId(), item.getQuantity());
+                }
             }
+
+            salesRollupService.recordTransition(order, orderItems, oldStatus, status);
         }
     }
 
@@ -131,14 +144,17 @@ public class OrderService {
         paymentProof.setOrder(order);
         paymentProof.setFilePath(filePath);
         paymentProof.setFileName(fileName);
+        paymentProof.setContentHash(blobStorageService.acquire(filePath));
 
-        paymentProofRepository.save(paymentProof);
+        paymentProof = paymentProofRepository.save(paymentProof);
 
         // Update order status to awaiting verification
         order.setStatus(Order.OrderStatus.AWAITING_VERIFICATION);
         orderRepository.save(order);
+        publishStatusChanged(order, Order.OrderStatus.PENDING);
 
-        eventPublisher.publishEvent(new PaymentProofUploadedEvent(orderId, order.getUser().getTelegramId()));
+        eventPublisher.publishEvent(new PaymentProofUploadedEvent(orderId, order.getUser().getTelegramId(),
+                paymentProof.getId()));
     }
 
     @Transactional(readOnly = true)
@@ -168,6 +184,11 @@ public class OrderService {
         paymentProof.setVerifiedBy(admin);
         paymentProofRepository.save(paymentProof);
 
+        if (!approved) {
+            // The hashes stay on the row for reuse detection; the file is swept after the grace period
+            blobStorageService.release(paymentProof.getContentHash());
+        }
+
         if (approved) {
             updateOrderStatus(orderId, Order.OrderStatus.PAID);
         } else {
@@ -182,6 +203,11 @@ public class OrderService {
         return getOrdersByStatus(Order.OrderStatus.AWAITING_VERIFICATION);
     }
 
+    private void publishStatusChanged(Order order, Order.OrderStatus oldStatus) {
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(order.getId(), order.getUser().getTelegramId(),
+                oldStatus, order.getStatus(), order.getTotalAmount(), order.getCreatedAt()));
+    }
+
     private OrderDto convertToDto(Order order) {
         OrderDto dto = new OrderDto();
         dto.setId(order.getId());
@@ -0,0 +1,80 @@
+package com.wristwatch.shop.service;
+
+import com.wristwatch.shop.entity.Order;
+import com.wristwatch.shop.event.OrderStatusChangedEvent;
+import com.wristwatch.shop.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live order counts per status. Seeded from a single GROUP BY at startup and then
+ * adjusted on every committed status transition, so reads never touch the database.
+ * The counts are periodically reloaded to correct transitions that committed while a reload
+ * was running and transitions made on other nodes. Reloads and event handling share one lock.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatusCounters {
+
+    private final OrderRepository orderRepository;
+
+    private final Map<Order.OrderStatus, AtomicLong> counters = createCounters();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${statistics.counters.resync-interval-ms:60000}")
+    public synchronized void reload() {
+        Map<Order.OrderStatus, Long> counts = new EnumMap<>(Order.OrderStatus.class);
+        for (Object[] row : orderRepository.countOrdersGroupedByStatus()) {
+            if (row[0] != null) {
+                counts.put((Order.OrderStatus) row[0], (Long) row[1]);
+            }
+        }
+
+        counters.forEach((status, counter) -> {
+            long count = counts.getOrDefault(status, 0L);
+            long previous = counter.getAndSet(count);
+            if (previous != count) {
+                log.debug("Order status counter {} corrected from {} to {}", status, previous, count);
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void handleOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.getOldStatus() != null) {
+            counters.get(event.getOldStatus()).decrementAndGet();
+        }
+        if (event.getNewStatus() != null) {
+            counters.get(event.getNewStatus()).incrementAndGet();
+        }
+    }
+
+    public long get(Order.OrderStatus status) {
+        return counters.get(status).get();
+    }
+
+    private static Map<Order.OrderStatus, AtomicLong> createCounters() {
+        Map<Order.OrderStatus, AtomicLong> counters = new EnumMap<>(Order.OrderStatus.class);
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            counters.put(status, new AtomicLong());
+        }
+        return counters;
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        counters.forEach((status, counter) -> snapshot.put(status.name(), counter.get()));
+        return snapshot;
+    }
+}
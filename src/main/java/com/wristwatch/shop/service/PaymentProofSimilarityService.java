@@ -0,0 +1,219 @@
+package com.wristwatch.shop.service;
+
+import com.wristwatch.shop.dto.SimilarPaymentProofDto;
+import com.wristwatch.shop.entity.PaymentProof;
+import com.wristwatch.shop.event.PaymentProofUploadedEvent;
+import com.wristwatch.shop.repository.PaymentProofRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flags payment proofs that look like an earlier upload, so a customer reusing an old
+ * screenshot is caught without admins comparing images by eye. A difference hash of every
+ * proof is computed in the background after upload and kept in a {@link PerceptualHashIndex}
+ * loaded at startup. The index is refreshed periodically with hashes computed by other
+ * instances, reading past a watermark on the proof id.
+ */
+@Service
+@Slf4j
+public class PaymentProofSimilarityService {
+
+    private static final int MAX_RESULTS = 5;
+    private static final int REFRESH_BATCH_SIZE = 5000;
+    // Proofs still unhashed after this long are not images and no longer hold back the watermark
+    private static final Duration HASHING_GRACE_PERIOD = Duration.ofHours(1);
+
+    private final PaymentProofRepository paymentProofRepository;
+    private final BlobStorageService blobStorageService;
+    private final PerceptualHashIndex index = new PerceptualHashIndex();
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate snapshotTransaction;
+    private final int maxDistance;
+    private long watermark;
+
+    public PaymentProofSimilarityService(PaymentProofRepository paymentProofRepository,
+                                         BlobStorageService blobStorageService,
+                                         PlatformTransactionManager transactionManager,
+                                         @Value("${payment-proof.similarity.max-distance:6}") int maxDistance,
+                                         @Value("${payment-proof.similarity.queue-capacity:1000}") int queueCapacity) {
+        this.paymentProofRepository = paymentProofRepository;
+        this.blobStorageService = blobStorageService;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        // Both refresh queries must see the same snapshot, or a proof hashed between them is skipped
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.maxDistance = Math.min(maxDistance, PerceptualHashIndex.MAX_DISTANCE);
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "payment-proof-hash");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @org.springframework.core.annotation.Order(20)
+    public void loadIndex() {
+        refreshIndex();
+        List<Long> missing = paymentProofRepository.findIdsWithoutPerceptualHash();
+        log.info("Loaded {} payment proof hashes, {} still to compute", index.size(), missing.size());
+        if (!missing.isEmpty()) {
+            executor.execute(() -> missing.forEach(this::computeHashQuietly));
+        }
+    }
+
+    /**
+     * Adds hashes computed since the last refresh, here or on another instance. Hashes are
+     * computed out of id order, so the watermark stays below proofs still waiting for theirs.
+     */
+    @Scheduled(fixedDelayString = "${payment-proof.similarity.refresh-interval-ms:60000}",
+            initialDelayString = "${payment-proof.similarity.refresh-interval-ms:60000}")
+    public synchronized void refreshIndex() {
+        long from = watermark;
+        LocalDateTime hashingSince = LocalDateTime.now().minus(HASHING_GRACE_PERIOD);
+        int added = snapshotTransaction.execute(status -> {
+            int count = 0;
+            long last = from;
+            List<Object[]> rows;
+            do {
+                rows = paymentProofRepository.findPerceptualHashesAfter(last, PageRequest.of(0, REFRESH_BATCH_SIZE));
+                for (Object[] row : rows) {
+                    last = (Long) row[0];
+                    if (index.add(last, (Long) row[1])) {
+                        count++;
+                    }
+                }
+            } while (rows.size() == REFRESH_BATCH_SIZE);
+
+            Long pending = paymentProofRepository.findFirstUnhashedIdAfter(from, hashingSince);
+            watermark = pending != null ? Math.min(last, pending - 1) : last;
+            return count;
+        });
+        if (added > 0) {
+            log.debug("Added {} payment proof hashes to the index, watermark now {}", added, watermark);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handlePaymentProofUploaded(PaymentProofUploadedEvent event) {
+        if (event.getPaymentProofId() != null) {
+            hashAsync(event.getPaymentProofId());
+        }
+    }
+
+    /**
+     * Earlier proofs that look like the order's latest proof, closest first. Falls back to an
+     * exact content match while the proof's hash is still being computed.
+     */
+    @Transactional(readOnly = true)
+    public List<SimilarPaymentProofDto> findSimilarForOrder(Long orderId) {
+        List<PaymentProof> proofs = paymentProofRepository.findByOrderId(orderId);
+        if (proofs.isEmpty()) {
+            return List.of();
+        }
+        PaymentProof proof = proofs.get(proofs.size() - 1);
+
+        Map<Long, Integer> distances = new LinkedHashMap<>();
+        if (proof.getPerceptualHash() != null) {
+            for (PerceptualHashIndex.Match match : index.search(proof.getPerceptualHash(), maxDistance)) {
+                if (match.id() != proof.getId()) {
+                    distances.putIfAbsent(match.id(), match.distance());
+                }
+            }
+        }
+        if (proof.getContentHash() != null) {
+            for (PaymentProof identical : paymentProofRepository.findByContentHashAndIdNot(proof.getContentHash(), proof.getId())) {
+                distances.put(identical.getId(), 0);
+            }
+        }
+        if (distances.isEmpty()) {
+            return List.of();
+        }
+
+        List<SimilarPaymentProofDto> result = new ArrayList<>();
+        for (PaymentProof other : paymentProofRepository.findAllById(distances.keySet())) {
+            if (other.getOrder().getId().equals(orderId)) {
+                // Re-uploads for the same order are not reuse
+                continue;
+            }
+            SimilarPaymentProofDto dto = new SimilarPaymentProofDto();
+            dto.setPaymentProofId(other.getId());
+            dto.setOrderId(other.getOrder().getId());
+            dto.setUploadedAt(other.getUploadedAt());
+            dto.setVerified(other.getVerifiedAt() != null);
+            dto.setDistance(distances.get(other.getId()));
+            dto.setIdentical(proof.getContentHash() != null && proof.getContentHash().equals(other.getContentHash()));
+            result.add(dto);
+        }
+        result.sort((a, b) -> Integer.compare(a.getDistance(), b.getDistance()));
+        return result.size() > MAX_RESULTS ? result.subList(0, MAX_RESULTS) : result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void hashAsync(Long paymentProofId) {
+        executor.execute(() -> computeHashQuietly(paymentProofId));
+    }
+
+    private void computeHashQuietly(Long paymentProofId) {
+        try {
+            computeHash(paymentProofId);
+        } catch (Exception e) {
+            log.warn("Failed to hash payment proof {}", paymentProofId, e);
+        }
+    }
+
+    private void computeHash(Long paymentProofId) throws IOException {
+        PaymentProof proof = paymentProofRepository.findById(paymentProofId).orElse(null);
+        if (proof == null || proof.getPerceptualHash() != null) {
+            return;
+        }
+
+        Path file = blobStorageService.localFile(Paths.get(proof.getFilePath()));
+        if (file == null) {
+            log.warn("Payment proof {} file is missing: {}", paymentProofId, proof.getFilePath());
+            return;
+        }
+        BufferedImage image = ImageIO.read(file.toFile());
+        if (image == null) {
+            log.debug("Payment proof {} is not a decodable image", paymentProofId);
+            return;
+        }
+
+        long hash = DifferenceHash.compute(image);
+        if (paymentProofRepository.setPerceptualHash(paymentProofId, hash) > 0) {
+            index.add(paymentProofId, hash);
+        }
+    }
+}
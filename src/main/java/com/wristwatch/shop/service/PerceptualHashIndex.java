@@ -0,0 +1,142 @@
+package com.wristwatch.shop.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Multi-index hash table for Hamming-distance search over 64-bit hashes. Each hash is split
+ * into four 16-bit segments with one table per segment. Two hashes within distance 7 differ
+ * in at most one bit of some segment, so a query only probes that segment's value and its 16
+ * one-bit neighbours in each table and verifies the few candidates it finds, instead of
+ * scanning every stored hash.
+ */
+public class PerceptualHashIndex {
+
+    public static final int MAX_DISTANCE = 7;
+
+    private static final int SEGMENTS = 4;
+    private static final int SEGMENT_BITS = 16;
+    private static final int BUCKETS = 1 << SEGMENT_BITS;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int[][][] buckets = new int[SEGMENTS][BUCKETS][];
+    private final int[][] bucketSizes = new int[SEGMENTS][BUCKETS];
+    private long[] ids = new long[1024];
+    private long[] hashes = new long[1024];
+    private final Set<Long> indexedIds = new HashSet<>();
+    private int size;
+
+    public record Match(long id, int distance) {
+    }
+
+    /**
+     * Adds the hash unless the id is already indexed; hashes never change once computed.
+     */
+    public boolean add(long id, long hash) {
+        lock.writeLock().lock();
+        try {
+            if (!indexedIds.add(id)) {
+                return false;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                hashes = Arrays.copyOf(hashes, size * 2);
+            }
+            int entry = size++;
+            ids[entry] = id;
+            hashes[entry] = hash;
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                addToBucket(segment, segmentOf(hash, segment), entry);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns stored hashes within {@code maxDistance} (at most {@link #MAX_DISTANCE}), closest first.
+     */
+    public List<Match> search(long hash, int maxDistance) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("Distance must be between 0 and " + MAX_DISTANCE);
+        }
+        // A match within d differs in at most d / SEGMENTS bits of some segment
+        int radius = maxDistance / SEGMENTS;
+        List<Match> matches = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                int value = segmentOf(hash, segment);
+                collect(segment, value, hash, maxDistance, radius, matches);
+                if (radius > 0) {
+                    for (int bit = 0; bit < SEGMENT_BITS; bit++) {
+                        collect(segment, value ^ (1 << bit), hash, maxDistance, radius, matches);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort((a, b) -> Integer.compare(a.distance(), b.distance()));
+        return matches;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(int segment, int value, long query, int maxDistance, int radius, List<Match> matches) {
+        int[] bucket = buckets[segment][value];
+        int count = bucketSizes[segment][value];
+        for (int i = 0; i < count; i++) {
+            int entry = bucket[i];
+            long candidate = hashes[entry];
+            int distance = DifferenceHash.distance(query, candidate);
+            if (distance <= maxDistance && firstMatchingSegment(query, candidate, radius) == segment) {
+                matches.add(new Match(ids[entry], distance));
+            }
+        }
+    }
+
+    /**
+     * The first segment whose probes reach the candidate, so each match is reported once.
+     */
+    private int firstMatchingSegment(long query, long candidate, int radius) {
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            if (Integer.bitCount(segmentOf(query, segment) ^ segmentOf(candidate, segment)) <= radius) {
+                return segment;
+            }
+        }
+        return -1;
+    }
+
+    private void addToBucket(int segment, int value, int entry) {
+        int[] bucket = buckets[segment][value];
+        int count = bucketSizes[segment][value];
+        if (bucket == null) {
+            bucket = new int[4];
+        } else if (count == bucket.length) {
+            bucket = Arrays.copyOf(bucket, count * 2);
+        }
+        bucket[count] = entry;
+        buckets[segment][value] = bucket;
+        bucketSizes[segment][value] = count + 1;
+    }
+
+    private static int segmentOf(long hash, int segment) {
+        return (int) (hash >>> (segment * SEGMENT_BITS)) & (BUCKETS - 1);
+    }
+}
@@ -0,0 +1,139 @@
+package com.wristwatch.shop.service;
+
+import com.wristwatch.shop.dto.PeriodComparisonDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares paid revenue and order counts between pairs of date ranges. All ranges are
+ * summed over {@code daily_sales_rollup} in one query with a conditional aggregate per
+ * range, and all money stays in {@link BigDecimal}.
+ */
+@Service
+@RequiredArgsConstructor
+public class PeriodComparisonService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * A current range and the range it is compared against, both inclusive.
+     */
+    public record PeriodPair(String name, LocalDate currentStart, LocalDate currentEnd,
+                             LocalDate previousStart, LocalDate previousEnd) {
+
+        public PeriodPair {
+            if (currentStart.isAfter(currentEnd) || previousStart.isAfter(previousEnd)) {
+                throw new IllegalArgumentException("Period start must not be after its end");
+            }
+        }
+    }
+
+    /**
+     * Month to date against the same days of the previous month. When the previous month is
+     * shorter, its range ends on its last day (e.g. 1-31 March compares with 1-28 February).
+     */
+    public static PeriodPair monthOverMonth(LocalDate today) {
+        LocalDate currentStart = today.withDayOfMonth(1);
+        LocalDate previousStart = currentStart.minusMonths(1);
+        LocalDate previousEnd = previousStart.withDayOfMonth(Math.min(today.getDayOfMonth(), previousStart.lengthOfMonth()));
+        return new PeriodPair("monthOverMonth", currentStart, today, previousStart, previousEnd);
+    }
+
+    /**
+     * Week to date (from Monday) against the same weekdays of the previous week.
+     */
+    public static PeriodPair weekOverWeek(LocalDate today) {
+        LocalDate currentStart = today.with(DayOfWeek.MONDAY);
+        return new PeriodPair("weekOverWeek", currentStart, today, currentStart.minusWeeks(1), today.minusWeeks(1));
+    }
+
+    public static PeriodPair sameDayLastWeek(LocalDate today) {
+        LocalDate lastWeek = today.minusWeeks(1);
+        return new PeriodPair("sameDayLastWeek", today, today, lastWeek, lastWeek);
+    }
+
+    public List<PeriodComparisonDto> getStandardComparisons(LocalDate today) {
+        return compare(List.of(monthOverMonth(today), weekOverWeek(today), sameDayLastWeek(today)));
+    }
+
+    public List<PeriodComparisonDto> compare(List<PeriodPair> pairs) {
+        if (pairs.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Two ranges per pair, each contributing an order count and a revenue column
+        List<LocalDate[]> ranges = new ArrayList<>();
+        for (PeriodPair pair : pairs) {
+            ranges.add(new LocalDate[]{pair.currentStart(), pair.currentEnd()});
+            ranges.add(new LocalDate[]{pair.previousStart(), pair.previousEnd()});
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        List<Object> parameters = new ArrayList<>();
+        LocalDate minDate = ranges.get(0)[0];
+        LocalDate maxDate = ranges.get(0)[1];
+        for (int i = 0; i < ranges.size(); i++) {
+            LocalDate[] range = ranges.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("COALESCE(SUM(CASE WHEN sales_date BETWEEN ? AND ? THEN order_count END), 0), ")
+               .append("COALESCE(SUM(CASE WHEN sales_date BETWEEN ? AND ? THEN revenue END), 0)");
+            parameters.add(Date.valueOf(range[0]));
+            parameters.add(Date.valueOf(range[1]));
+            parameters.add(Date.valueOf(range[0]));
+            parameters.add(Date.valueOf(range[1]));
+            minDate = range[0].isBefore(minDate) ? range[0] : minDate;
+            maxDate = range[1].isAfter(maxDate) ? range[1] : maxDate;
+        }
+        // Bounds the scan to the rollup rows any range can touch
+        sql.append(" FROM daily_sales_rollup WHERE sales_date BETWEEN ? AND ?");
+        parameters.add(Date.valueOf(minDate));
+        parameters.add(Date.valueOf(maxDate));
+
+        return jdbcTemplate.query(sql.toString(), rs -> {
+            rs.next();
+            List<PeriodComparisonDto> comparisons = new ArrayList<>();
+            int column = 1;
+            for (PeriodPair pair : pairs) {
+                long currentOrders = rs.getLong(column++);
+                BigDecimal currentRevenue = rs.getBigDecimal(column++);
+                long previousOrders = rs.getLong(column++);
+                BigDecimal previousRevenue = rs.getBigDecimal(column++);
+                comparisons.add(toDto(pair, currentOrders, currentRevenue, previousOrders, previousRevenue));
+            }
+            return comparisons;
+        }, parameters.toArray());
+    }
+
+    private PeriodComparisonDto toDto(PeriodPair pair, long currentOrders, BigDecimal currentRevenue,
+                                      long previousOrders, BigDecimal previousRevenue) {
+        PeriodComparisonDto dto = new PeriodComparisonDto();
+        dto.setName(pair.name());
+        dto.setCurrentStart(pair.currentStart());
+        dto.setCurrentEnd(pair.currentEnd());
+        dto.setPreviousStart(pair.previousStart());
+        dto.setPreviousEnd(pair.previousEnd());
+        dto.setCurrentOrders(currentOrders);
+        dto.setPreviousOrders(previousOrders);
+        dto.setCurrentRevenue(currentRevenue.setScale(2, RoundingMode.HALF_UP));
+        dto.setPreviousRevenue(previousRevenue.setScale(2, RoundingMode.HALF_UP));
+        dto.setRevenueChange(dto.getCurrentRevenue().subtract(dto.getPreviousRevenue()));
+
+        if (previousRevenue.signum() > 0) {
+            dto.setGrowthRate(dto.getRevenueChange()
+                    .multiply(BigDecimal.valueOf(100))
+                    .divide(dto.getPreviousRevenue(), 2, RoundingMode.HALF_UP));
+        }
+        return dto;
+    }
+}
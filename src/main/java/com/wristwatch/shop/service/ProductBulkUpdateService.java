@@ -0,0 +1,146 @@
+package com.wristwatch.shop.service;
+
+import com.wristwatch.shop.dto.BulkProductUpdateRequest;
+import com.wristwatch.shop.dto.BulkProductUpdateResultDto;
+import com.wristwatch.shop.dto.BulkProductUpdateResultDto.ItemResult;
+import com.wristwatch.shop.dto.BulkProductUpdateResultDto.Status;
+import com.wristwatch.shop.event.CatalogChangedEvent;
+import com.wristwatch.shop.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Applies stock and price changes for many products with one batched UPDATE per chunk
+ * instead of a find and save per product. Each chunk commits on its own; a single
+ * {@link CatalogChangedEvent} covering every committed chunk is published for the whole
+ * request, even if a later chunk fails.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductBulkUpdateService {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String ABSOLUTE_SQL =
+            "UPDATE product SET stock = COALESCE(CAST(? AS INTEGER), stock), " +
+            "price = COALESCE(CAST(? AS NUMERIC), price), updated_at = ? WHERE id = ?";
+
+    private static final String DELTA_SQL =
+            "UPDATE product SET stock = stock + COALESCE(CAST(? AS INTEGER), 0), " +
+            "price = price + COALESCE(CAST(? AS NUMERIC), 0), updated_at = ? " +
+            "WHERE id = ? AND stock + COALESCE(CAST(? AS INTEGER), 0) >= 0 " +
+            "AND price + COALESCE(CAST(? AS NUMERIC), 0) > 0";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BulkProductUpdateResultDto applyUpdates(BulkProductUpdateRequest request) {
+        BulkProductUpdateResultDto result = new BulkProductUpdateResultDto();
+        Set<Long> changedIds = new LinkedHashSet<>();
+        List<BulkProductUpdateRequest.Item> updates = request.getUpdates();
+
+        try {
+            for (int from = 0; from < updates.size(); from += CHUNK_SIZE) {
+                List<BulkProductUpdateRequest.Item> chunk = updates.subList(from, Math.min(from + CHUNK_SIZE, updates.size()));
+                Set<Long> chunkChangedIds = new LinkedHashSet<>();
+                TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+                transaction.executeWithoutResult(status -> applyChunk(chunk, request.getMode(), result, chunkChangedIds));
+                // Only reached once the chunk has committed
+                changedIds.addAll(chunkChangedIds);
+            }
+        } finally {
+            // Earlier chunks stay committed when a later one fails, so their changes must still be announced
+            if (!changedIds.isEmpty()) {
+                eventPublisher.publishEvent(new CatalogChangedEvent(new ArrayList<>(changedIds)));
+            }
+        }
+
+        log.info("Bulk product update: mode={}, updated={}, failed={}",
+                request.getMode(), result.getUpdated(), result.getFailed());
+        return result;
+    }
+
+    private void applyChunk(List<BulkProductUpdateRequest.Item> chunk, BulkProductUpdateRequest.Mode mode,
+                            BulkProductUpdateResultDto result, Set<Long> changedIds) {
+        Set<Long> requestedIds = chunk.stream()
+                .map(BulkProductUpdateRequest.Item::getId)
+                .collect(Collectors.toSet());
+        Set<Long> existingIds = new HashSet<>(productRepository.findExistingIds(requestedIds));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<BulkProductUpdateRequest.Item> accepted = new ArrayList<>();
+        List<Object[]> parameters = new ArrayList<>();
+        for (BulkProductUpdateRequest.Item item : chunk) {
+            String problem = validate(item, mode);
+            if (problem != null) {
+                addResult(result, new ItemResult(item.getId(), Status.INVALID, problem));
+            } else if (!existingIds.contains(item.getId())) {
+                addResult(result, new ItemResult(item.getId(), Status.NOT_FOUND, "Product not found"));
+            } else {
+                accepted.add(item);
+                parameters.add(mode == BulkProductUpdateRequest.Mode.DELTA ?
+                        new Object[]{item.getStock(), item.getPrice(), now, item.getId(), item.getStock(), item.getPrice()} :
+                        new Object[]{item.getStock(), item.getPrice(), now, item.getId()});
+            }
+        }
+
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        String sql = mode == BulkProductUpdateRequest.Mode.DELTA ? DELTA_SQL : ABSOLUTE_SQL;
+        int[] counts = jdbcTemplate.batchUpdate(sql, parameters);
+
+        for (int i = 0; i < accepted.size(); i++) {
+            Long id = accepted.get(i).getId();
+            if (counts[i] > 0) {
+                changedIds.add(id);
+                addResult(result, new ItemResult(id, Status.UPDATED, null));
+            } else {
+                addResult(result, new ItemResult(id, Status.REJECTED, "Stock cannot be negative and price must be greater than 0"));
+            }
+        }
+    }
+
+    private String validate(BulkProductUpdateRequest.Item item, BulkProductUpdateRequest.Mode mode) {
+        if (item.getStock() == null && item.getPrice() == null) {
+            return "Either stock or price is required";
+        }
+        if (mode == BulkProductUpdateRequest.Mode.ABSOLUTE) {
+            if (item.getStock() != null && item.getStock() < 0) {
+                return "Stock cannot be negative";
+            }
+            if (item.getPrice() != null && item.getPrice().compareTo(new BigDecimal("0.01")) < 0) {
+                return "Price must be greater than 0";
+            }
+        }
+        return null;
+    }
+
+    private void addResult(BulkProductUpdateResultDto result, ItemResult itemResult) {
+        result.getResults().add(itemResult);
+        if (itemResult.getStatus() == Status.UPDATED) {
+            result.setUpdated(result.getUpdated() + 1);
+        } else {
+            result.setFailed(result.getFailed() + 1);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.wristwatch.shop.service;
+
+import com.wristwatch.shop.event.CatalogChangedEvent;
+import com.wristwatch.shop.repository.ProductRepository;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory facet index over active products. Every facet value owns a bitset
+ * keyed by product id, so filtering and facet counts are bitset intersections
+ * instead of database queries. The index is rebuilt at startup and patched
+ * whenever a {@link CatalogChangedEvent} is published. It is also rebuilt
+ * periodically, which picks up stock and catalog changes made on other nodes;
+ * rebuilds and patches are serialized so a rebuild never undoes a newer patch.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductFacetIndex {
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet active = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final Map<Long, BitSet> byCategory = new HashMap<>();
+    private final Map<PriceBand, BitSet> byPriceBand = new EnumMap<>(PriceBand.class);
+    private final Map<Integer, FacetRow> rows = new HashMap<>();
+
+    public enum PriceBand {
+        UNDER_100("Under $100", null, new BigDecimal("100")),
+        FROM_100_TO_300("$100 - $300", new BigDecimal("100"), new BigDecimal("300")),
+        FROM_300_TO_1000("$300 - $1000", new BigDecimal("300"), new BigDecimal("1000")),
+        OVER_1000("Over $1000", new BigDecimal("1000"), null);
+
+        private final String label;
+        private final BigDecimal lowerInclusive;
+        private final BigDecimal upperExclusive;
+
+        PriceBand(String label, BigDecimal lowerInclusive, BigDecimal upperExclusive) {
+            this.label = label;
+            this.lowerInclusive = lowerInclusive;
+            this.upperExclusive = upperExclusive;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public static PriceBand of(BigDecimal price) {
+            for (PriceBand band : values()) {
+                boolean aboveLower = band.lowerInclusive == null || price.compareTo(band.lowerInclusive) >= 0;
+                boolean belowUpper = band.upperExclusive == null || price.compareTo(band.upperExclusive) < 0;
+                if (aboveLower && belowUpper) {
+                    return band;
+                }
+            }
+            return OVER_1000;
+        }
+    }
+
+    @Data
+    public static class FacetResult {
+        private List<Long> productIds;
+        private Map<Long, Long> categoryCounts;
+        private Map<String, Long> priceBandCounts;
+        private long inStockCount;
+        private long totalCount;
+    }
+
+    private record FacetRow(Long categoryId, PriceBand priceBand, boolean inStock) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${catalog.facets.resync-interval-ms:60000}",
+            initialDelayString = "${catalog.facets.resync-interval-ms:60000}")
+    public synchronized void rebuild() {
+        List<Object[]> facetRows = productRepository.findActiveFacetRows();
+
+        lock.writeLock().lock();
+        try {
+            active.clear();
+            inStock.clear();
+            byCategory.clear();
+            byPriceBand.clear();
+            rows.clear();
+            for (Object[] row : facetRows) {
+                add(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.debug("Product facet index built with {} active products", facetRows.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void handleCatalogChanged(CatalogChangedEvent event) {
+        if (event.getProductIds() == null || event.getProductIds().isEmpty()) {
+            return;
+        }
+
+        List<Object[]> facetRows = productRepository.findActiveFacetRowsByIdIn(event.getProductIds());
+
+        lock.writeLock().lock();
+        try {
+            for (Long productId : event.getProductIds()) {
+                remove(Math.toIntExact(productId));
+            }
+            for (Object[] row : facetRows) {
+                add(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public FacetResult search(Long categoryId, PriceBand priceBand, boolean inStockOnly) {
+        lock.readLock().lock();
+        try {
+            BitSet categoryFilter = categoryId != null ? bitsOrEmpty(byCategory.get(categoryId)) : active;
+            BitSet priceFilter = priceBand != null ? bitsOrEmpty(byPriceBand.get(priceBand)) : active;
+            BitSet stockFilter = inStockOnly ? inStock : active;
+
+            BitSet matches = intersect(categoryFilter, priceFilter, stockFilter);
+
+            // Each facet is counted against the other active filters, so a tap shows what it would yield
+            Map<Long, Long> categoryCounts = new LinkedHashMap<>();
+            BitSet withoutCategory = intersect(active, priceFilter, stockFilter);
+            byCategory.forEach((id, bits) -> categoryCounts.put(id, countIntersection(bits, withoutCategory)));
+
+            Map<String, Long> priceBandCounts = new LinkedHashMap<>();
+            BitSet withoutPrice = intersect(active, categoryFilter, stockFilter);
+            for (PriceBand band : PriceBand.values()) {
+                priceBandCounts.put(band.name(), countIntersection(bitsOrEmpty(byPriceBand.get(band)), withoutPrice));
+            }
+
+            FacetResult result = new FacetResult();
+            result.setProductIds(toIds(matches));
+            result.setCategoryCounts(categoryCounts);
+            result.setPriceBandCounts(priceBandCounts);
+            result.setInStockCount(countIntersection(inStock, intersect(active, categoryFilter, priceFilter)));
+            result.setTotalCount(matches.cardinality());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Object[] row) {
+        int bit = Math.toIntExact((Long) row[0]);
+        Long categoryId = (Long) row[1];
+        PriceBand band = PriceBand.of((BigDecimal) row[2]);
+        boolean hasStock = row[3] != null && (Integer) row[3] > 0;
+
+        active.set(bit);
+        if (categoryId != null) {
+            byCategory.computeIfAbsent(categoryId, k -> new BitSet()).set(bit);
+        }
+        byPriceBand.computeIfAbsent(band, k -> new BitSet()).set(bit);
+        if (hasStock) {
+            inStock.set(bit);
+        }
+        rows.put(bit, new FacetRow(categoryId, band, hasStock));
+    }
+
+    private void remove(int bit) {
+        FacetRow row = rows.remove(bit);
+        if (row == null) {
+            return;
+        }
+
+        active.clear(bit);
+        inStock.clear(bit);
+        if (row.categoryId() != null) {
+            BitSet categoryBits = byCategory.get(row.categoryId());
+            if (categoryBits != null) {
+                categoryBits.clear(bit);
+                if (categoryBits.isEmpty()) {
+                    byCategory.remove(row.categoryId());
+                }
+            }
+        }
+        BitSet bandBits = byPriceBand.get(row.priceBand());
+        if (bandBits != null) {
+            bandBits.clear(bit);
+        }
+    }
+
+    private BitSet intersect(BitSet first, BitSet... others) {
+        BitSet result = (BitSet) first.clone();
+        for (BitSet other : others) {
+            result.and(other);
+        }
+        return result;
+    }
+
+    private long countIntersection(BitSet first, BitSet second) {
+        BitSet result = (BitSet) first.clone();
+        result.and(second);
+        return result.cardinality();
+    }
+
+    private BitSet bitsOrEmpty(BitSet bits) {
+        return bits != null ? bits : new BitSet();
+    }
+
+    private List<Long> toIds(BitSet bits) {
+        List<Long> ids = new ArrayList<>(bits.cardinality());
+        for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+            ids.add((long) bit);
+        }
+        return ids;
+    }
+}
@@ -2,16 +2,19 @@ package com.wristwatch.shop.service;
 
 import com.wristwatch.shop.dto.ProductCreateRequest;
 import com.wristwatch.shop.dto.ProductDto;
+import com.wristwatch.shop.dto.ProductFacetsDto;
 import com.wristwatch.shop.entity.Category;
 import com.wristwatch.shop.entity.Product;
+import com.wristwatch.shop.event.CatalogChangedEvent;
 import com.wristwatch.shop.repository.CategoryRepository;
 import com.wristwatch.shop.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -20,44 +23,51 @@ public class ProductService {
     
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final ProductFacetIndex productFacetIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BlobStorageService blobStorageService;
     
     @Transactional(readOnly = true)
     public List<ProductDto> getAllProducts() {
-        return productRepository.findByIsActiveTrueOrderByNameAsc()
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return productRepository.findActiveProductDtos();
     }
     
     @Transactional(readOnly = true)
     public List<ProductDto> getProductsByCategory(Long categoryId) {
-        return productRepository.findByCategoryIdAndIsActiveTrue(categoryId)
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return productRepository.findActiveProductDtosByCategory(categoryId);
     }
     
     @Transactional(readOnly = true)
     public List<ProductDto> getAvailableProducts() {
-        return productRepository.findAvailableProducts()
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return productRepository.findAvailableProductDtos();
     }
     
     @Transactional(readOnly = true)
     public List<ProductDto> getAvailableProductsByCategory(Long categoryId) {
-        return productRepository.findAvailableProductsByCategory(categoryId)
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return productRepository.findAvailableProductDtosByCategory(categoryId);
     }
     
     @Transactional(readOnly = true)
     public ProductDto getProductById(Long id) {
-        Product product = productRepository.findById(id)
+        return productRepository.findProductDtoById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
-        return convertToDto(product);
+    }
+    
+    @Transactional(readOnly = true)
+    public ProductFacetsDto getFacetedProducts(Long categoryId, ProductFacetIndex.PriceBand priceBand, boolean inStockOnly) {
+        ProductFacetIndex.FacetResult result = productFacetIndex.search(categoryId, priceBand, inStockOnly);
+        
+        ProductFacetsDto dto = new ProductFacetsDto();
+        dto.setCategoryId(categoryId);
+        dto.setPriceBand(priceBand != null ? priceBand.name() : null);
+        dto.setInStockOnly(inStockOnly);
+        dto.setTotalCount(result.getTotalCount());
+        dto.setCategoryCounts(result.getCategoryCounts());
+        dto.setPriceBandCounts(result.getPriceBandCounts());
+        dto.setInStockCount(result.getInStockCount());
+        dto.setProducts(result.getProductIds().isEmpty() ?
+                List.of() : productRepository.findProductDtosByIdIn(result.getProductIds()));
+        return dto;
     }
     
     public ProductDto createProduct(ProductCreateRequest request) {
@@ -75,9 +85,11 @@ public class ProductService {
         product.setStock(request.getStock());
         product.setCategory(category);
         product.setImageUrl(request.getImageUrl());
+        product.setImageHash(blobStorageService.acquire(request.getImageUrl()));
         product.setIsActive(true);
         
         Product savedProduct = productRepository.save(product);
+        publishCatalogChanged(savedProduct.getId());
         return convertToDto(savedProduct);
     }
     
@@ -99,9 +111,14 @@ public class ProductService {
         product.setPrice(request.getPrice());
         product.setStock(request.getStock());
         product.setCategory(category);
+        if (!Objects.equals(product.getImageUrl(), request.getImageUrl())) {
+            blobStorageService.release(product.getImageHash());
+            product.setImageHash(blobStorageService.acquire(request.getImageUrl()));
+        }
         product.setImageUrl(request.getImageUrl());
         
         Product savedProduct = productRepository.save(product);
+        publishCatalogChanged(savedProduct.getId());
         return convertToDto(savedProduct);
     }
     
@@ -110,7 +127,10 @@ public class ProductService {
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
         
         product.setIsActive(false);
+        blobStorageService.release(product.getImageHash());
+        product.setImageHash(null);
         productRepository.save(product);
+        publishCatalogChanged(id);
     }
     
     public void updateStock(Long productId, Integer newStock) {
@@ -119,6 +139,7 @@ public class ProductService {
         
         product.setStock(newStock);
         productRepository.save(product);
+        publishCatalogChanged(productId);
     }
     
     public boolean reduceStock(Long productId, Integer quantity) {
@@ -131,9 +152,14 @@ public class ProductService {
         
         product.setStock(product.getStock() - quantity);
         productRepository.save(product);
+        publishCatalogChanged(productId);
         return true;
     }
     
+    private void publishCatalogChanged(Long productId) {
+        eventPublisher.publishEvent(new CatalogChangedEvent(List.of(productId)));
+    }
+    
     private ProductDto convertToDto(Product product) {
         ProductDto dto = new ProductDto();
         dto.setId(product.getId());
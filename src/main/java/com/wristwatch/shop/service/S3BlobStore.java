@@ -0,0 +1,186 @@
+package com.wristwatch.shop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stores blobs in an S3-compatible bucket (AWS S3, MinIO, ...). Files larger than one part
+ * are sent with a multipart upload, one part in memory at a time. Reads are not cached here;
+ * wrap this store in a {@link CachingBlobStore}.
+ */
+@Slf4j
+public class S3BlobStore implements BlobStore {
+
+    private final S3Client s3Client;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final String prefix;
+    private final int partSize;
+    private final Path spoolDirectory;
+
+    public S3BlobStore(S3Client s3Client, S3Presigner presigner, String bucket, String prefix,
+                       int partSize, Path spoolDirectory) {
+        this.s3Client = s3Client;
+        this.presigner = presigner;
+        this.bucket = bucket;
+        this.prefix = prefix == null ? "" : prefix;
+        this.partSize = partSize;
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        long size = Files.size(source);
+        try {
+            if (size <= partSize) {
+                s3Client.putObject(PutObjectRequest.builder()
+                                .bucket(bucket)
+                                .key(objectKey(key))
+                                .contentType(contentType)
+                                .build(),
+                        RequestBody.fromFile(source));
+            } else {
+                multipartUpload(key, source, contentType);
+            }
+        } catch (S3Exception e) {
+            throw new IOException("Failed to upload " + key + " to bucket " + bucket, e);
+        }
+        log.debug("Uploaded {} ({} bytes) to bucket {}", key, size, bucket);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (S3Exception e) {
+            throw new IOException("Failed to read " + key + " from bucket " + bucket, e);
+        }
+    }
+
+    /**
+     * Downloads the object to a new file in the spool directory on every call.
+     */
+    @Override
+    public Path fetch(String key) throws IOException {
+        Files.createDirectories(spoolDirectory);
+        Path target = Files.createTempFile(spoolDirectory, "fetch-", ".tmp");
+        try (InputStream input = open(key)) {
+            Files.copy(input, target, StandardCopyOption.REPLACE_EXISTING);
+            return target;
+        } catch (NoSuchFileException e) {
+            Files.deleteIfExists(target);
+            return null;
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            s3Client.headObject(HeadObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Failed to check " + key + " in bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (S3Exception e) {
+            throw new IOException("Failed to delete " + key + " from bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public Optional<URL> presign(String key, Duration ttl) {
+        GetObjectPresignRequest request = GetObjectPresignRequest.builder()
+                .signatureDuration(ttl)
+                .getObjectRequest(GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build())
+                .build();
+        return Optional.of(presigner.presignGetObject(request).url());
+    }
+
+    private void multipartUpload(String key, Path source, String contentType) throws IOException {
+        String objectKey = objectKey(key);
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(objectKey)
+                .contentType(contentType)
+                .build()).uploadId();
+
+        try (InputStream input = Files.newInputStream(source)) {
+            List<CompletedPart> parts = new ArrayList<>();
+            byte[] buffer = new byte[partSize];
+            int partNumber = 1;
+            int read;
+            while ((read = input.readNBytes(buffer, 0, partSize)) > 0) {
+                String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucket)
+                                .key(objectKey)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .build(),
+                        RequestBody.fromBytes(read == partSize ? buffer : Arrays.copyOf(buffer, read))).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+                partNumber++;
+            }
+
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(objectKey)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(objectKey)
+                    .uploadId(uploadId)
+                    .build());
+            throw e;
+        }
+    }
+
+    private String objectKey(String key) {
+        return prefix + key;
+    }
+}
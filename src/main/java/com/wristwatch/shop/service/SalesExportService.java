@@ -0,0 +1,220 @@
+package com.wristwatch.shop.service;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams raw order and order item rows for a date range as CSV or XLSX. Rows are read
+ * from a fetch-size cursor and written one at a time; XLSX output uses SXSSF so only a
+ * small window of rows is ever held in memory.
+ */
+@Service
+@RequiredArgsConstructor
+public class SalesExportService {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int XLSX_ROW_WINDOW = 100;
+    private static final int XLSX_ROWS_PER_SHEET = 1_000_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    public enum Dataset {
+        ORDERS("orders",
+                new String[]{"order_id", "created_at", "status", "telegram_id", "customer_name",
+                        "customer_phone", "delivery_address", "total_amount"},
+                "SELECT o.id AS order_id, o.created_at, o.status, u.telegram_id, o.customer_name, " +
+                "o.customer_phone, o.delivery_address, o.total_amount " +
+                "FROM \"order\" o LEFT JOIN app_user u ON u.id = o.user_id " +
+                "WHERE o.created_at >= ? AND o.created_at <= ? ORDER BY o.id"),
+        ORDER_ITEMS("order-items",
+                new String[]{"order_item_id", "order_id", "created_at", "status", "product_id",
+                        "product_name", "quantity", "unit_price", "total_price"},
+                "SELECT oi.id AS order_item_id, oi.order_id, o.created_at, o.status, oi.product_id, " +
+                "p.name AS product_name, oi.quantity, oi.unit_price, oi.total_price " +
+                "FROM order_item oi JOIN \"order\" o ON o.id = oi.order_id " +
+                "LEFT JOIN product p ON p.id = oi.product_id " +
+                "WHERE o.created_at >= ? AND o.created_at <= ? ORDER BY oi.id");
+
+        private final String fileName;
+        private final String[] columns;
+        private final String sql;
+
+        Dataset(String fileName, String[] columns, String sql) {
+            this.fileName = fileName;
+            this.columns = columns;
+            this.sql = sql;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+    }
+
+    public enum Format {
+        CSV, XLSX
+    }
+
+    public void export(Dataset dataset, Format format, LocalDateTime startDate, LocalDateTime endDate,
+                       boolean gzip, OutputStream output) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(output, 64 * 1024) : output;
+        RowSink sink = format == Format.XLSX ? new XlsxRowSink(target) : new CsvRowSink(target);
+
+        sink.writeHeader(dataset.columns);
+
+        int columnCount = dataset.columns.length;
+        RowCallbackHandler rowHandler = rs -> {
+            Object[] values = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                values[i] = rs.getObject(i + 1);
+            }
+            try {
+                sink.writeRow(values);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        // PostgreSQL only streams with a fetch size inside a transaction
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        try {
+            transaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement statement = con.prepareStatement(dataset.sql);
+                statement.setFetchSize(FETCH_SIZE);
+                statement.setTimestamp(1, Timestamp.valueOf(startDate));
+                statement.setTimestamp(2, Timestamp.valueOf(endDate));
+                return statement;
+            }, rowHandler));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        sink.finish();
+        if (gzip) {
+            ((GZIPOutputStream) target).finish();
+        }
+        output.flush();
+    }
+
+    private interface RowSink {
+        void writeHeader(Object[] header) throws IOException;
+
+        void writeRow(Object[] values) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static class CsvRowSink implements RowSink {
+        private final Writer writer;
+
+        CsvRowSink(OutputStream output) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        @Override
+        public void writeHeader(Object[] header) throws IOException {
+            CsvSupport.writeRecord(writer, header);
+        }
+
+        @Override
+        public void writeRow(Object[] values) throws IOException {
+            CsvSupport.writeRecord(writer, values);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static class XlsxRowSink implements RowSink {
+        private final OutputStream output;
+        private final SXSSFWorkbook workbook;
+        private final CellStyle dateStyle;
+        private Object[] header;
+        private Sheet sheet;
+        private int rowIndex;
+
+        XlsxRowSink(OutputStream output) {
+            this.output = output;
+            this.workbook = new SXSSFWorkbook(XLSX_ROW_WINDOW);
+            this.workbook.setCompressTempFiles(true);
+            this.dateStyle = workbook.createCellStyle();
+            this.dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+        }
+
+        @Override
+        public void writeHeader(Object[] header) {
+            this.header = header;
+            startSheet();
+        }
+
+        @Override
+        public void writeRow(Object[] values) {
+            if (rowIndex >= XLSX_ROWS_PER_SHEET) {
+                startSheet();
+            }
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < values.length; i++) {
+                setCell(row.createCell(i), values[i]);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            try {
+                workbook.write(output);
+            } finally {
+                workbook.dispose();
+                workbook.close();
+            }
+        }
+
+        private void startSheet() {
+            sheet = workbook.createSheet("Export " + (workbook.getNumberOfSheets() + 1));
+            rowIndex = 0;
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < header.length; i++) {
+                row.createCell(i).setCellValue(String.valueOf(header[i]));
+            }
+        }
+
+        private void setCell(Cell cell, Object value) {
+            if (value == null) {
+                cell.setBlank();
+            } else if (value instanceof BigDecimal) {
+                cell.setCellValue(((BigDecimal) value).doubleValue());
+            } else if (value instanceof Number) {
+                cell.setCellValue(((Number) value).doubleValue());
+            } else if (value instanceof Timestamp) {
+                cell.setCellValue(((Timestamp) value).toLocalDateTime());
+                cell.setCellStyle(dateStyle);
+            } else {
+                cell.setCellValue(value.toString());
+            }
+        }
+    }
+}
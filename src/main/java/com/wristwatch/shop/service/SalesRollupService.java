@@ -0,0 +1,91 @@
+package com.wristwatch.shop.service;
+
+import com.wristwatch.shop.entity.Order;
+import com.wristwatch.shop.entity.OrderItem;
+import com.wristwatch.shop.repository.DailyProductSalesRollupRepository;
+import com.wristwatch.shop.repository.DailySalesRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Maintains the per-day sales rollups that back the period statistics. Orders are bucketed
+ * by the date they were created, matching the existing statistics, and are applied in the
+ * same transaction as the transition into or out of {@code PAID}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupService {
+
+    private static final LocalDate EPOCH = LocalDate.of(2000, 1, 1);
+
+    private final DailySalesRollupRepository dailySalesRollupRepository;
+    private final DailyProductSalesRollupRepository dailyProductSalesRollupRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransition(Order order, List<OrderItem> orderItems,
+                                 Order.OrderStatus oldStatus, Order.OrderStatus newStatus) {
+        boolean becamePaid = newStatus == Order.OrderStatus.PAID && oldStatus != Order.OrderStatus.PAID;
+        boolean leftPaid = oldStatus == Order.OrderStatus.PAID && newStatus != Order.OrderStatus.PAID;
+        if (!becamePaid && !leftPaid) {
+            return;
+        }
+
+        int sign = becamePaid ? 1 : -1;
+        LocalDate salesDate = order.getCreatedAt().toLocalDate();
+        dailySalesRollupRepository.addSales(salesDate, sign, signed(order.getTotalAmount(), sign));
+
+        for (OrderItem item : orderItems) {
+            Long categoryId = item.getProduct().getCategory() != null ? item.getProduct().getCategory().getId() : null;
+            dailyProductSalesRollupRepository.addSales(salesDate, item.getProduct().getId(), categoryId,
+                    (long) sign * item.getQuantity(), signed(item.getTotalPrice(), sign));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @org.springframework.core.annotation.Order(0)
+    public void backfillIfEmpty() {
+        if (dailySalesRollupRepository.count() == 0) {
+            log.info("Sales rollup is empty, backfilling from order history");
+            backfill(EPOCH);
+        }
+    }
+
+    /**
+     * Re-derives the last 90 days nightly so that any drift from manual data fixes is corrected.
+     */
+    @Scheduled(cron = "${statistics.rollup.reconcile-cron:0 30 3 * * *}")
+    public void reconcileRecentDays() {
+        backfill(LocalDate.now().minusDays(90));
+    }
+
+    public void backfill(LocalDate fromDate) {
+        LocalDateTime from = fromDate.atStartOfDay();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            dailySalesRollupRepository.deleteFrom(from);
+            dailyProductSalesRollupRepository.deleteFrom(from);
+            int days = dailySalesRollupRepository.insertFromOrders(from);
+            int productDays = dailyProductSalesRollupRepository.insertFromOrders(from);
+            log.info("Sales rollup backfilled from {}: {} day rows, {} product-day rows", fromDate, days, productDays);
+        });
+    }
+
+    private BigDecimal signed(BigDecimal amount, int sign) {
+        return sign < 0 ? amount.negate() : amount;
+    }
+}
@@ -0,0 +1,220 @@
+package com.wristwatch.shop.service;
+
+import com.wristwatch.shop.event.OrderStatusChangedEvent;
+import com.wristwatch.shop.event.PaymentVerificationEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches computed statistics by key with stale-while-revalidate semantics. A fresh entry is
+ * returned as is; a stale one is returned immediately while a single background reload runs.
+ * Concurrent misses for the same key share one load. Payment verifications and order status
+ * changes mark every entry stale so the next read triggers a refresh. Loads run in a read-only
+ * transaction, so they can be served by a read replica.
+ * Cached values are shared between callers and must not be modified.
+ */
+@Component
+@Slf4j
+public class StatisticsCache {
+
+    private final long freshTtlNanos;
+    private final long maxStaleNanos;
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final ExecutorService refresher;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private record Entry(Object value, long loadedAt, long generation) {
+    }
+
+    public StatisticsCache(@Value("${statistics.cache.fresh-ttl:30s}") Duration freshTtl,
+                           @Value("${statistics.cache.max-stale:10m}") Duration maxStale,
+                           @Value("${statistics.cache.max-entries:500}") int maxEntries,
+                           PlatformTransactionManager transactionManager) {
+        this.freshTtlNanos = freshTtl.toNanos();
+        this.maxStaleNanos = maxStale.toNanos();
+        this.maxEntries = maxEntries;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        Entry entry = entries.get(key);
+        long now = System.nanoTime();
+
+        if (entry != null) {
+            long age = now - entry.loadedAt();
+            boolean invalidated = entry.generation() != generation.get();
+            if (!invalidated && age <= freshTtlNanos) {
+                hits.incrementAndGet();
+                return (T) entry.value();
+            }
+            if (age <= maxStaleNanos) {
+                staleHits.incrementAndGet();
+                refreshInBackground(key, loader);
+                return (T) entry.value();
+            }
+        }
+
+        misses.incrementAndGet();
+        return (T) load(key, loader);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handlePaymentVerification(PaymentVerificationEvent event) {
+        invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleOrderStatusChanged(OrderStatusChangedEvent event) {
+        invalidateAll();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        long totalHits = hits.get() + staleHits.get();
+        long requests = totalHits + misses.get();
+
+        metrics.put("entries", entries.size());
+        metrics.put("hits", hits.get());
+        metrics.put("staleHits", staleHits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("coalescedLoads", coalesced.get());
+        metrics.put("backgroundRefreshes", refreshes.get());
+        metrics.put("loadFailures", loadFailures.get());
+        metrics.put("invalidations", invalidations.get());
+        metrics.put("hitRate", requests > 0 ? (double) totalHits / requests : 0.0);
+
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Loads the value on the calling thread, or waits for a load of the same key that is already running.
+     */
+    private Object load(String key, Supplier<?> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return await(running);
+        }
+
+        try {
+            Object value = compute(key, loader);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private void refreshInBackground(String key, Supplier<?> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, future) != null) {
+            return;
+        }
+
+        refreshes.incrementAndGet();
+        try {
+            refresher.execute(() -> {
+                try {
+                    future.complete(compute(key, loader));
+                } catch (RuntimeException e) {
+                    // Keep serving the stale value; the next read will try again
+                    log.warn("Failed to refresh statistics for {}", key, e);
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, future);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private Object compute(String key, Supplier<?> loader) {
+        // Read the generation first so an invalidation during the load leaves the result stale
+        long loadGeneration = generation.get();
+        Object value;
+        try {
+            value = readOnlyTransaction.execute(status -> loader.get());
+        } catch (RuntimeException e) {
+            loadFailures.incrementAndGet();
+            throw e;
+        }
+        entries.put(key, new Entry(value, System.nanoTime(), loadGeneration));
+        evictIfNeeded();
+        return value;
+    }
+
+    private Object await(CompletableFuture<Object> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for statistics", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("Failed to load statistics", cause);
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (entries.size() > maxEntries) {
+            entries.entrySet().stream()
+                    .min(Comparator.comparingLong(e -> e.getValue().loadedAt()))
+                    .ifPresent(oldest -> entries.remove(oldest.getKey(), oldest.getValue()));
+        }
+    }
+}
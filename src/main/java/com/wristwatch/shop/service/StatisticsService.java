@@ -1,145 +1,215 @@
 package com.wristwatch.shop.service;
 
+import com.wristwatch.shop.dto.CohortReportDto;
+import com.wristwatch.shop.dto.PeriodComparisonDto;
 import com.wristwatch.shop.dto.SalesReportDto;
-import com.wristwatch.shop.entity.Order;
+import com.wristwatch.shop.repository.DailySalesRollupRepository;
 import com.wristwatch.shop.repository.OrderRepository;
 import com.wristwatch.shop.repository.OrderItemRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Sales statistics for the admin bot and the statistics API. Results are served through
+ * {@link StatisticsCache}, so repeated polling does not hit the database on every call.
+ */
 @Service
 @RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class StatisticsService {
     
+    private static final int TOP_PRODUCTS_LIMIT = 10;
+    
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
+    private final OrderStatusCounters orderStatusCounters;
+    private final DailySalesRollupRepository dailySalesRollupRepository;
+    private final StatisticsCache statisticsCache;
+    private final TopProductsTracker topProductsTracker;
+    private final PeriodComparisonService periodComparisonService;
+    private final CustomerAnalyticsService customerAnalyticsService;
+    private final DistinctCountService distinctCountService;
     
     public Map<String, Object> getDailySales() {
-        LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
-        return getSalesStatistics(startOfDay);
+        LocalDate startDate = LocalDate.now();
+        return statisticsCache.get("sales:" + startDate, () -> getSalesStatistics(startDate));
     }
     
     public Map<String, Object> getWeeklySales() {
-        LocalDateTime startOfWeek = LocalDateTime.now().minusDays(7);
-        return getSalesStatistics(startOfWeek);
+        LocalDate startDate = LocalDate.now().minusDays(6);
+        return statisticsCache.get("sales:" + startDate, () -> getSalesStatistics(startDate));
     }
     
     public Map<String, Object> getMonthlySales() {
-        LocalDateTime startOfMonth = LocalDateTime.now().minusDays(30);
-        return getSalesStatistics(startOfMonth);
+        LocalDate startDate = LocalDate.now().minusDays(29);
+        return statisticsCache.get("sales:" + startDate, () -> getSalesStatistics(startDate));
     }
     
     public SalesReportDto getDetailedSalesReport(LocalDateTime startDate, LocalDateTime endDate) {
+        return statisticsCache.get("report:" + startDate + ":" + endDate,
+                () -> buildDetailedSalesReport(startDate, endDate));
+    }
+    
+    public List<Object[]> getTopSellingProducts(int days) {
+        if (topProductsTracker.supportsWindow(days)) {
+            return topProductsTracker.getTop(days, TOP_PRODUCTS_LIMIT);
+        }
+        // Same calendar-day window and row shape as the tracker: {productName, unitsSold}
+        LocalDate today = LocalDate.now();
+        return statisticsCache.get("top:" + days + ":" + today, () -> orderItemRepository
+                .findTopSellingProductsBetween(today.minusDays(days - 1).atStartOfDay(),
+                        today.atTime(LocalTime.MAX), PageRequest.of(0, TOP_PRODUCTS_LIMIT))
+                .stream()
+                .map(row -> new Object[]{row[0], row[1]})
+                .collect(Collectors.toList()));
+    }
+    
+    public Map<String, Object> getOrderStatusDistribution() {
+        return new HashMap<>(orderStatusCounters.snapshot());
+    }
+    
+    public Map<String, Object> getRevenueGrowth() {
+        return statisticsCache.get("growth:" + LocalDate.now(), this::calculateRevenueGrowth);
+    }
+    
+    public List<PeriodComparisonDto> getPeriodComparisons() {
+        LocalDate today = LocalDate.now();
+        return statisticsCache.get("comparisons:" + today, () -> periodComparisonService.getStandardComparisons(today));
+    }
+    
+    public PeriodComparisonDto comparePeriods(LocalDate currentStart, LocalDate currentEnd,
+                                              LocalDate previousStart, LocalDate previousEnd) {
+        PeriodComparisonService.PeriodPair pair = new PeriodComparisonService.PeriodPair(
+                "custom", currentStart, currentEnd, previousStart, previousEnd);
+        return statisticsCache.get("compare:" + currentStart + ":" + currentEnd + ":" + previousStart + ":" + previousEnd,
+                () -> periodComparisonService.compare(List.of(pair)).get(0));
+    }
+    
+    public CohortReportDto getCohortReport() {
+        return statisticsCache.get("cohorts", customerAnalyticsService::getCohortReport);
+    }
+    
+    public Map<String, Object> getUniqueCustomers(LocalDate startDate, LocalDate endDate) {
+        return statisticsCache.get("unique:" + startDate + ":" + endDate,
+                () -> distinctCountService.getUniqueCounts(startDate, endDate));
+    }
+    
+    /**
+     * Unique buyers and visitors for today and the last 7 and 30 days.
+     */
+    public Map<String, Object> getUniqueCustomerSummary() {
+        LocalDate today = LocalDate.now();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("daily", getUniqueCustomers(today, today));
+        summary.put("weekly", getUniqueCustomers(today.minusDays(6), today));
+        summary.put("monthly", getUniqueCustomers(today.minusDays(29), today));
+        return summary;
+    }
+    
+    public Map<String, Object> getCacheMetrics() {
+        return statisticsCache.getMetrics();
+    }
+    
+    private SalesReportDto buildDetailedSalesReport(LocalDateTime startDate, LocalDateTime endDate) {
         SalesReportDto report = new SalesReportDto();
         report.setStartDate(startDate);
         report.setEndDate(endDate);
         report.setPeriod(calculatePeriodDescription(startDate, endDate));
         
-        // Get orders in date range
-        List<Order> orders = orderRepository.findOrdersBetweenDates(startDate, endDate)
-                .stream()
-                .filter(order -> order.getStatus() == Order.OrderStatus.PAID)
-                .collect(Collectors.toList());
+        // Aggregate paid orders per day in the database
+        List<SalesReportDto.DailySalesDto> dailyBreakdown = generateDailyBreakdown(
+                orderRepository.sumPaidOrdersByDayBetween(startDate, endDate), startDate, endDate);
         
         // Calculate basic statistics
-        report.setTotalOrders((long) orders.size());
-        
-        BigDecimal totalRevenue = orders.stream()
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long totalOrders = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        for (SalesReportDto.DailySalesDto day : dailyBreakdown) {
+            totalOrders += day.getOrders();
+            totalRevenue = totalRevenue.add(day.getRevenue());
+        }
+        report.setTotalOrders(totalOrders);
         report.setTotalRevenue(totalRevenue);
         
-        if (orders.size() > 0) {
+        if (totalOrders > 0) {
             report.setAverageOrderValue(totalRevenue.divide(
-                    BigDecimal.valueOf(orders.size()), 2, RoundingMode.HALF_UP));
+                    BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP));
         } else {
             report.setAverageOrderValue(BigDecimal.ZERO);
         }
         
         // Get top products
-        List<Object[]> topProductsData = orderItemRepository.findTopSellingProductsSince(startDate);
+        List<Object[]> topProductsData = orderItemRepository.findTopSellingProductsBetween(
+                startDate, endDate, PageRequest.of(0, TOP_PRODUCTS_LIMIT));
         List<SalesReportDto.TopProductDto> topProducts = topProductsData.stream()
-                .limit(10)
                 .map(data -> {
                     SalesReportDto.TopProductDto topProduct = new SalesReportDto.TopProductDto();
                     topProduct.setProductName((String) data[0]);
                     topProduct.setQuantitySold((Long) data[1]);
+                    topProduct.setRevenue((BigDecimal) data[2]);
                     return topProduct;
                 })
                 .collect(Collectors.toList());
         report.setTopProducts(topProducts);
         
-        // Generate daily breakdown
-        report.setDailyBreakdown(generateDailyBreakdown(orders, startDate, endDate));
+        report.setDailyBreakdown(dailyBreakdown);
         
         return report;
     }
     
-    public List<Object[]> getTopSellingProducts(int days) {
-        LocalDateTime startDate = LocalDateTime.now().minusDays(days);
-        return orderItemRepository.findTopSellingProductsSince(startDate);
-    }
-    
-    public Map<String, Object> getOrderStatusDistribution() {
-        Map<String, Object> distribution = new HashMap<>();
-        
-        for (Order.OrderStatus status : Order.OrderStatus.values()) {
-            Long count = (long) orderRepository.findByStatusOrderByCreatedAtDesc(status).size();
-            distribution.put(status.name(), count);
-        }
-        
-        return distribution;
-    }
-    
-    public Map<String, Object> getRevenueGrowth() {
+    private Map<String, Object> calculateRevenueGrowth() {
         Map<String, Object> growth = new HashMap<>();
         
-        LocalDateTime thisMonth = LocalDateTime.now().minusDays(30);
-        LocalDateTime lastMonth = LocalDateTime.now().minusDays(60);
-        LocalDateTime twoMonthsAgo = LocalDateTime.now().minusDays(90);
+        PeriodComparisonDto monthOverMonth = periodComparisonService.compare(
+                List.of(PeriodComparisonService.monthOverMonth(LocalDate.now()))).get(0);
         
-        Double thisMonthRevenue = orderRepository.getTotalRevenueSince(thisMonth);
-        Double lastMonthRevenue = orderRepository.getTotalRevenueSince(lastMonth) - 
-                                 (thisMonthRevenue != null ? thisMonthRevenue : 0);
-        
-        growth.put("thisMonth", thisMonthRevenue != null ? thisMonthRevenue : 0.0);
-        growth.put("lastMonth", lastMonthRevenue != null ? lastMonthRevenue : 0.0);
-        
-        if (lastMonthRevenue != null && lastMonthRevenue > 0) {
-            double growthRate = ((thisMonthRevenue != null ? thisMonthRevenue : 0) - lastMonthRevenue) / lastMonthRevenue * 100;
-            growth.put("growthRate", growthRate);
-        } else {
-            growth.put("growthRate", 0.0);
-        }
+        growth.put("thisMonth", monthOverMonth.getCurrentRevenue());
+        growth.put("lastMonth", monthOverMonth.getPreviousRevenue());
+        growth.put("growthRate", monthOverMonth.getGrowthRate() != null ? monthOverMonth.getGrowthRate() : BigDecimal.ZERO);
+        growth.put("comparison", monthOverMonth);
         
         return growth;
     }
     
-    private Map<String, Object> getSalesStatistics(LocalDateTime startDate) {
+    private Map<String, Object> getSalesStatistics(LocalDate startDate) {
         Map<String, Object> stats = new HashMap<>();
         
-        Long orderCount = orderRepository.countPaidOrdersSince(startDate);
-        Double totalRevenue = orderRepository.getTotalRevenueSince(startDate);
+        BigDecimal[] totals = sumRollup(startDate, LocalDate.now());
         
-        stats.put("orderCount", orderCount != null ? orderCount : 0L);
-        stats.put("totalRevenue", totalRevenue != null ? totalRevenue : 0.0);
-        stats.put("period", startDate);
+        stats.put("orderCount", totals[0].longValue());
+        stats.put("totalRevenue", totals[1].doubleValue());
+        stats.put("period", startDate.atStartOfDay());
         
         return stats;
     }
     
+    /**
+     * Returns {orderCount, revenue} summed over the rollup rows between both dates, inclusive.
+     */
+    private BigDecimal[] sumRollup(LocalDate startDate, LocalDate endDate) {
+        Object[] row = dailySalesRollupRepository.sumBetween(startDate, endDate).get(0);
+        return new BigDecimal[]{toBigDecimal(row[0]), toBigDecimal(row[1])};
+    }
+    
+    private BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+    
     private String calculatePeriodDescription(LocalDateTime startDate, LocalDateTime endDate) {
         long days = ChronoUnit.DAYS.between(startDate, endDate);
         
@@ -155,32 +225,33 @@ public class StatisticsService {
     }
     
     private List<SalesReportDto.DailySalesDto> generateDailyBreakdown(
-            List<Order> orders, LocalDateTime startDate, LocalDateTime endDate) {
+            List<Object[]> dailyTotals, LocalDateTime startDate, LocalDateTime endDate) {
         
-        Map<String, SalesReportDto.DailySalesDto> dailyMap = new HashMap<>();
+        Map<LocalDate, Object[]> totalsByDay = new HashMap<>();
+        for (Object[] row : dailyTotals) {
+            totalsByDay.put(toLocalDate(row[0]), row);
+        }
         
-        // Initialize all days with zero values
+        // Walk the range in order so every day is present, including days without sales
+        List<SalesReportDto.DailySalesDto> breakdown = new ArrayList<>();
         LocalDateTime current = startDate.truncatedTo(ChronoUnit.DAYS);
         while (!current.isAfter(endDate)) {
-            String dateKey = current.toLocalDate().toString();
+            Object[] row = totalsByDay.get(current.toLocalDate());
             SalesReportDto.DailySalesDto dailySales = new SalesReportDto.DailySalesDto();
             dailySales.setDate(current);
-            dailySales.setOrders(0L);
-            dailySales.setRevenue(BigDecimal.ZERO);
-            dailyMap.put(dateKey, dailySales);
+            dailySales.setOrders(row != null ? ((Number) row[1]).longValue() : 0L);
+            dailySales.setRevenue(row != null ? toBigDecimal(row[2]) : BigDecimal.ZERO);
+            breakdown.add(dailySales);
             current = current.plusDays(1);
         }
         
-        // Fill in actual data
-        for (Order order : orders) {
-            String dateKey = order.getCreatedAt().toLocalDate().toString();
-            SalesReportDto.DailySalesDto dailySales = dailyMap.get(dateKey);
-            if (dailySales != null) {
-                dailySales.setOrders(dailySales.getOrders() + 1);
-                dailySales.setRevenue(dailySales.getRevenue().add(order.getTotalAmount()));
-            }
+        return breakdown;
+    }
+    
+    private LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
         }
-        
-        return new ArrayList<>(dailyMap.values());
+        return ((java.sql.Date) value).toLocalDate();
     }
 }
@@ -0,0 +1,249 @@
+package com.wristwatch.shop.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.objects.PhotoSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads files from the Telegram Bot API file endpoint over one shared {@link HttpClient},
+ * which keeps connections alive between downloads. Each attempt has connect and read timeouts;
+ * the read timeout covers both the wait for the response headers and any stall while the body
+ * is streamed, which a watchdog enforces by closing the stream. Transient failures (I/O errors, 429 and 5xx) are retried with exponential backoff and jitter,
+ * and a semaphore bounds how many downloads run at once. The base URL is configurable so
+ * the downloader can be pointed at a local stand-in.
+ */
+@Service
+@Slf4j
+public class TelegramFileDownloader {
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final Duration readTimeout;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Semaphore permits;
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "telegram-download-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Consumes the body of a successful download; may read it only partially.
+     */
+    @FunctionalInterface
+    public interface BodyHandler<T> {
+        T handle(InputStream body) throws IOException;
+    }
+
+    public TelegramFileDownloader(@Value("${telegram.files.base-url:https://api.telegram.org/file}") String baseUrl,
+                                  @Value("${telegram.files.connect-timeout:5s}") Duration connectTimeout,
+                                  @Value("${telegram.files.read-timeout:30s}") Duration readTimeout,
+                                  @Value("${telegram.files.max-attempts:4}") int maxAttempts,
+                                  @Value("${telegram.files.initial-backoff:500ms}") Duration initialBackoff,
+                                  @Value("${telegram.files.max-backoff:8s}") Duration maxBackoff,
+                                  @Value("${telegram.files.max-concurrent:4}") int maxConcurrent) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.readTimeout = readTimeout;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Downloads {@code filePath} (as returned by {@code getFile}) and passes the body to {@code handler}.
+     * A failure inside the handler that is an {@link IOException} is retried like a network error.
+     */
+    public <T> T download(String botToken, String filePath, BodyHandler<T> handler) throws IOException {
+        URI uri = URI.create(baseUrl + "/bot" + botToken + "/" + filePath);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .GET()
+                .build();
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to download " + filePath, e);
+        }
+        try {
+            return downloadWithRetry(request, filePath, handler);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Picks the smallest size whose longer side is at least {@code targetDimension}, or the
+     * largest available if none is big enough.
+     */
+    public static PhotoSize selectPhotoSize(List<PhotoSize> sizes, int targetDimension) {
+        Comparator<PhotoSize> byArea = Comparator.comparingLong(size -> (long) size.getWidth() * size.getHeight());
+        PhotoSize best = null;
+        PhotoSize largest = null;
+        for (PhotoSize size : sizes) {
+            if (largest == null || byArea.compare(size, largest) > 0) {
+                largest = size;
+            }
+            if (Math.max(size.getWidth(), size.getHeight()) >= targetDimension
+                    && (best == null || byArea.compare(size, best) < 0)) {
+                best = size;
+            }
+        }
+        return best != null ? best : largest;
+    }
+
+    private <T> T downloadWithRetry(HttpRequest request, String filePath, BodyHandler<T> handler) throws IOException {
+        IOException lastFailure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            Duration retryAfter = null;
+            try {
+                HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream body = response.body()) {
+                    int status = response.statusCode();
+                    if (status == 200) {
+                        try (StallGuard guarded = new StallGuard(body)) {
+                            return handler.handle(guarded);
+                        }
+                    }
+                    lastFailure = new IOException("Telegram returned HTTP " + status + " for " + filePath);
+                    if (status != 429 && status < 500) {
+                        throw lastFailure;
+                    }
+                    retryAfter = response.headers().firstValueAsLong("Retry-After")
+                            .stream().mapToObj(Duration::ofSeconds).findFirst().orElse(null);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while downloading " + filePath, e);
+            } catch (IOException e) {
+                if (e == lastFailure) {
+                    throw e;
+                }
+                lastFailure = e;
+            }
+
+            if (attempt < maxAttempts) {
+                Duration delay = retryAfter != null ? retryAfter : backoff(attempt);
+                log.warn("Download of {} failed (attempt {}/{}), retrying in {} ms: {}",
+                        filePath, attempt, maxAttempts, delay.toMillis(), lastFailure.getMessage());
+                sleep(delay);
+            }
+        }
+        throw lastFailure;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Closes the body once no data has arrived for the read timeout, which unblocks a read
+     * stuck on a stalled connection; that read then fails with an {@link HttpTimeoutException}.
+     */
+    private final class StallGuard extends FilterInputStream {
+
+        private final ScheduledFuture<?> check;
+        private volatile long lastProgress = System.nanoTime();
+        private volatile boolean timedOut;
+
+        StallGuard(InputStream body) {
+            super(body);
+            long period = Math.max(1, readTimeout.toMillis() / 2);
+            this.check = watchdog.scheduleWithFixedDelay(this::closeIfStalled, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int value = super.read();
+                lastProgress = System.nanoTime();
+                return value;
+            } catch (IOException e) {
+                throw timedOut ? timeout(e) : e;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                int read = super.read(buffer, offset, length);
+                lastProgress = System.nanoTime();
+                return read;
+            } catch (IOException e) {
+                throw timedOut ? timeout(e) : e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            check.cancel(false);
+            super.close();
+        }
+
+        private void closeIfStalled() {
+            if (timedOut || System.nanoTime() - lastProgress < readTimeout.toNanos()) {
+                return;
+            }
+            timedOut = true;
+            try {
+                in.close();
+            } catch (IOException e) {
+                log.debug("Failed to close stalled download", e);
+            }
+        }
+
+        private IOException timeout(IOException cause) {
+            HttpTimeoutException timeout = new HttpTimeoutException(
+                    "No data received for " + readTimeout.toMillis() + " ms");
+            timeout.initCause(cause);
+            return timeout;
+        }
+    }
+
+    /**
+     * A random delay between half and all of the exponentially growing cap, so bots retrying
+     * after the same outage do not hit the API in lockstep.
+     */
+    private Duration backoff(int attempt) {
+        long cap = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap / 2, cap + 1));
+    }
+
+    private void sleep(Duration delay) throws IOException {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry", e);
+        }
+    }
+}
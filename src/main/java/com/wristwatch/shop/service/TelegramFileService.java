@@ -2,6 +2,7 @@ package com.wristwatch.shop.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.methods.GetFile;
 import org.telegram.telegrambots.meta.api.objects.File;
@@ -11,14 +12,8 @@ import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.List;
-import java.util.UUID;
 
 @Service
 @Slf4j
@@ -27,46 +22,46 @@ public class TelegramFileService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private TelegramFileDownloader telegramFileDownloader;
+
+    @Value("${telegram.files.product-photo-size:1280}")
+    private int productPhotoSize;
+
     public String downloadAndStorePhoto(Message message, TelegramLongPollingBot bot, String subDirectory) throws TelegramApiException, IOException {
         if (!message.hasPhoto()) {
             throw new IllegalArgumentException("Message does not contain a photo");
         }
 
-        // Get the largest photo
-        List<PhotoSize> photos = message.getPhoto();
-        PhotoSize photo = photos.get(photos.size() - 1);
+        // Product images only need the largest variant's size; payment proofs keep every detail
+        int targetSize = "products".equals(subDirectory) ? productPhotoSize : Integer.MAX_VALUE;
+        PhotoSize photo = TelegramFileDownloader.selectPhotoSize(message.getPhoto(), targetSize);
 
         // Get file info from Telegram
         GetFile getFileMethod = new GetFile();
         getFileMethod.setFileId(photo.getFileId());
         File file = bot.execute(getFileMethod);
 
-        // Download file from Telegram servers
-        String fileUrl = "https://api.telegram.org/file/bot" + bot.getBotToken() + "/" + file.getFilePath();
-
-        // Generate unique filename
-        String extension = getFileExtension(file.getFilePath());
-        String filename = UUID.randomUUID().toString() + extension;
+        // Download straight into the blob store
+        BlobStorageService.StoredBlob blob = telegramFileDownloader.download(bot.getBotToken(), file.getFilePath(),
+                body -> blobStorageService.store(body, BlobStorageService.extensionOf(file.getFilePath())));
 
-        // Create directory if it doesn't exist
-        String uploadDir = "./uploads";
-        Path uploadPath = Paths.get(uploadDir, subDirectory);
-        Files.createDirectories(uploadPath);
+        log.info("Downloaded and stored Telegram photo {}x{}: {}", photo.getWidth(), photo.getHeight(), blob.path());
 
-        // Download and save file
-        Path filePath = uploadPath.resolve(filename);
-        try (InputStream inputStream = new URL(fileUrl).openStream()) {
-            Files.copy(inputStream, filePath, StandardCopyOption.REPLACE_EXISTING);
+        if ("products".equals(subDirectory)) {
+            fileStorageService.generateVariantsIfMissing(blob);
         }
-
-        log.info("Downloaded and stored Telegram photo: {}", filePath.toString());
-        return filePath.toString();
+        return blob.path().toString();
     }
 
-    private String getFileExtension(String filePath) {
-        if (filePath != null && filePath.contains(".")) {
-            return filePath.substring(filePath.lastIndexOf("."));
-        }
-        return ".jpg"; // Default extension
+    /**
+     * Returns a local copy of a stored file to upload to Telegram, or null if it no longer exists.
+     */
+    public java.io.File localFile(String filePath) throws IOException {
+        Path local = blobStorageService.localFile(Paths.get(filePath));
+        return local != null ? local.toFile() : null;
     }
 }
@@ -0,0 +1,334 @@
+package com.wristwatch.shop.service;
+
+import com.wristwatch.shop.dto.ProductDto;
+import com.wristwatch.shop.entity.Order;
+import com.wristwatch.shop.event.CatalogChangedEvent;
+import com.wristwatch.shop.event.OrderStatusChangedEvent;
+import com.wristwatch.shop.repository.DailyProductSalesRollupRepository;
+import com.wristwatch.shop.repository.OrderItemRepository;
+import com.wristwatch.shop.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps units sold per product in one bucket per day for the last 30 days and maintains
+ * running totals for the 1, 7 and 30 day windows. Each window also keeps its best sellers
+ * in order, updated in place as sales come in, so reading the top products touches neither
+ * the database nor the other products. The full selection is only redone when a product
+ * drops out of that set, as after a refund. Windows are whole calendar days ending today,
+ * matching the daily sales rollup, and are periodically reloaded from it so sales and
+ * renames on other nodes show up.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TopProductsTracker {
+
+    private static final int[] WINDOWS = {1, 7, 30};
+    private static final int MAX_WINDOW = 30;
+    /**
+     * How many best sellers each window keeps in order; the most {@link #getTop} returns.
+     */
+    public static final int TOP_CAPACITY = 50;
+    private static final Comparator<Ranked> BEST_FIRST =
+            Comparator.comparingLong(Ranked::units).reversed().thenComparingLong(Ranked::productId);
+
+    private final DailyProductSalesRollupRepository dailyProductSalesRollupRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<LocalDate, Map<Long, Long>> buckets = new TreeMap<>();
+    private final Map<Integer, Map<Long, Long>> windowTotals = new HashMap<>();
+    private final Map<Integer, TopSellers> tops = createTops();
+    private final Map<Long, String> productNames = new HashMap<>();
+    private LocalDate today = LocalDate.now();
+
+    private record Ranked(long productId, long units) {
+    }
+
+    /**
+     * The best sellers of one window. Products outside it sold no more than its last entry,
+     * so it only goes stale when an entry loses units while others are waiting outside.
+     */
+    private static class TopSellers {
+        final TreeSet<Ranked> entries = new TreeSet<>(BEST_FIRST);
+        final Map<Long, Ranked> members = new HashMap<>();
+        boolean stale = true;
+    }
+
+    public boolean supportsWindow(int days) {
+        for (int window : WINDOWS) {
+            if (window == days) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs after the sales rollup has been backfilled, since it is rebuilt from it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @org.springframework.core.annotation.Order(10)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${statistics.top-products.rebuild-cron:0 45 3 * * *}")
+    @Scheduled(fixedDelayString = "${statistics.top-products.resync-interval-ms:60000}",
+            initialDelayString = "${statistics.top-products.resync-interval-ms:60000}")
+    public void rebuild() {
+        LocalDate now = LocalDate.now();
+        List<Object[]> rows = dailyProductSalesRollupRepository.findQuantitiesSince(now.minusDays(MAX_WINDOW - 1));
+
+        lock.writeLock().lock();
+        try {
+            today = now;
+            buckets.clear();
+            productNames.clear();
+            for (Object[] row : rows) {
+                Long productId = (Long) row[1];
+                productNames.put(productId, (String) row[2]);
+                buckets.computeIfAbsent((LocalDate) row[0], date -> new HashMap<>())
+                        .merge(productId, ((Number) row[3]).longValue(), Long::sum);
+            }
+            recomputeWindows();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Top products tracker rebuilt from {} product-day rows", rows.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleOrderStatusChanged(OrderStatusChangedEvent event) {
+        boolean becamePaid = event.getNewStatus() == Order.OrderStatus.PAID && event.getOldStatus() != Order.OrderStatus.PAID;
+        boolean leftPaid = event.getOldStatus() == Order.OrderStatus.PAID && event.getNewStatus() != Order.OrderStatus.PAID;
+        if ((!becamePaid && !leftPaid) || event.getOrderCreatedAt() == null) {
+            return;
+        }
+
+        LocalDate salesDate = event.getOrderCreatedAt().toLocalDate();
+        if (salesDate.isBefore(LocalDate.now().minusDays(MAX_WINDOW - 1))) {
+            return;
+        }
+
+        List<Object[]> lines = orderItemRepository.findSalesLinesByOrderId(event.getOrderId());
+        int sign = becamePaid ? 1 : -1;
+
+        lock.writeLock().lock();
+        try {
+            rollOverIfNewDay();
+            Map<Long, Long> bucket = buckets.computeIfAbsent(salesDate, date -> new HashMap<>());
+            for (Object[] line : lines) {
+                Long productId = (Long) line[0];
+                long quantity = (long) sign * ((Number) line[2]).intValue();
+                productNames.put(productId, (String) line[1]);
+                addTo(bucket, productId, quantity);
+                for (int window : WINDOWS) {
+                    if (!salesDate.isBefore(today.minusDays(window - 1))) {
+                        long total = addTo(windowTotals.computeIfAbsent(window, w -> new HashMap<>()), productId, quantity);
+                        updateTop(window, productId, total);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleCatalogChanged(CatalogChangedEvent event) {
+        List<Long> trackedIds;
+        lock.readLock().lock();
+        try {
+            trackedIds = event.getProductIds().stream()
+                    .filter(productNames::containsKey)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (trackedIds.isEmpty()) {
+            return;
+        }
+
+        // Product names can change; deleted products keep their last known name
+        List<ProductDto> products = productRepository.findProductDtosByIdIn(trackedIds);
+        lock.writeLock().lock();
+        try {
+            for (ProductDto product : products) {
+                productNames.put(product.getId(), product.getName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} (at most {@link #TOP_CAPACITY}) rows of {productName, unitsSold},
+     * best sellers first.
+     */
+    public List<Object[]> getTop(int days, int limit) {
+        if (!supportsWindow(days)) {
+            throw new IllegalArgumentException("Unsupported window: " + days + " days");
+        }
+        if (limit > TOP_CAPACITY) {
+            throw new IllegalArgumentException("At most " + TOP_CAPACITY + " top products are tracked");
+        }
+
+        if (!LocalDate.now().equals(today)) {
+            lock.writeLock().lock();
+            try {
+                rollOverIfNewDay();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            TopSellers top = tops.get(days);
+            if (!top.stale) {
+                return read(top, limit);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            TopSellers top = tops.get(days);
+            if (top.stale) {
+                selectTop(days);
+            }
+            return read(top, limit);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Object[]> read(TopSellers top, int limit) {
+        List<Object[]> rows = new ArrayList<>(Math.min(limit, top.entries.size()));
+        for (Ranked ranked : top.entries) {
+            if (rows.size() == limit) {
+                break;
+            }
+            rows.add(new Object[]{productNames.get(ranked.productId()), ranked.units()});
+        }
+        return rows;
+    }
+
+    /**
+     * Moves the product to its new place in the window's best sellers. Must hold the write lock.
+     */
+    private void updateTop(int window, Long productId, long total) {
+        TopSellers top = tops.get(window);
+        if (top.stale) {
+            return;
+        }
+        Ranked previous = top.members.remove(productId);
+        if (previous != null) {
+            top.entries.remove(previous);
+        }
+
+        if (total > 0) {
+            Ranked ranked = new Ranked(productId, total);
+            if (top.entries.size() < TOP_CAPACITY || BEST_FIRST.compare(ranked, top.entries.last()) < 0) {
+                top.entries.add(ranked);
+                top.members.put(productId, ranked);
+                if (top.entries.size() > TOP_CAPACITY) {
+                    top.members.remove(top.entries.pollLast().productId());
+                }
+            }
+        }
+
+        // An entry that lost units and is now last (or gone) may trail a product outside the set
+        boolean fellBack = previous != null && total < previous.units()
+                && (!top.members.containsKey(productId) || top.entries.last().productId() == productId);
+        if (fellBack && windowTotals.get(window).size() > top.entries.size()) {
+            top.stale = true;
+        }
+    }
+
+    /**
+     * Picks the window's best sellers from all its totals with a bounded heap. Must hold the write lock.
+     */
+    private void selectTop(int window) {
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(TOP_CAPACITY + 1, BEST_FIRST.reversed());
+        windowTotals.getOrDefault(window, Map.of()).forEach((productId, units) -> {
+            heap.offer(new Ranked(productId, units));
+            if (heap.size() > TOP_CAPACITY) {
+                heap.poll();
+            }
+        });
+
+        TopSellers top = tops.get(window);
+        top.entries.clear();
+        top.members.clear();
+        for (Ranked ranked : heap) {
+            top.entries.add(ranked);
+            top.members.put(ranked.productId(), ranked);
+        }
+        top.stale = false;
+    }
+
+    private void rollOverIfNewDay() {
+        LocalDate now = LocalDate.now();
+        if (!now.equals(today)) {
+            today = now;
+            buckets.headMap(today.minusDays(MAX_WINDOW - 1)).clear();
+            recomputeWindows();
+        }
+    }
+
+    private void recomputeWindows() {
+        windowTotals.clear();
+        for (int window : WINDOWS) {
+            Map<Long, Long> totals = new HashMap<>();
+            buckets.tailMap(today.minusDays(window - 1)).values()
+                    .forEach(bucket -> bucket.forEach((productId, quantity) -> addTo(totals, productId, quantity)));
+            windowTotals.put(window, totals);
+            // Selected again on the next read
+            tops.get(window).stale = true;
+        }
+    }
+
+    private static Map<Integer, TopSellers> createTops() {
+        Map<Integer, TopSellers> tops = new HashMap<>();
+        for (int window : WINDOWS) {
+            tops.put(window, new TopSellers());
+        }
+        return tops;
+    }
+
+    /**
+     * Adds to the product's total and returns the new total; totals that reach zero are dropped.
+     */
+    private long addTo(Map<Long, Long> totals, Long productId, long quantity) {
+        long total = totals.getOrDefault(productId, 0L) + quantity;
+        if (total > 0) {
+            totals.put(productId, total);
+        } else {
+            totals.remove(productId);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,353 @@
+package com.wristwatch.shop.service;
+
+import com.wristwatch.shop.entity.Order;
+import com.wristwatch.shop.entity.PaymentProof;
+import com.wristwatch.shop.repository.FileBlobRepository;
+import com.wristwatch.shop.repository.PaymentProofRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Keeps the upload store from growing without bound. A nightly run:
+ * <ol>
+ *     <li>bundles proofs of orders verified long ago into zip archives and releases their blobs,</li>
+ *     <li>recomputes blob reference counts from the database in parallel hash-prefix chunks,</li>
+ *     <li>deletes blobs (and their image variants) that have had no references for the grace period,</li>
+ *     <li>removes stale temporary files.</li>
+ * </ol>
+ * Archived proofs are extracted again on demand by {@link #restoreArchived}.
+ */
+@Service
+@Slf4j
+public class UploadLifecycleService {
+
+    private static final int ARCHIVE_BATCH_SIZE = 500;
+    private static final DateTimeFormatter BUNDLE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final FileBlobRepository fileBlobRepository;
+    private final PaymentProofRepository paymentProofRepository;
+    private final BlobStorageService blobStorageService;
+    private final ImageVariantService imageVariantService;
+    private final PlatformTransactionManager transactionManager;
+    private final ExecutorService executor;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "upload-lifecycle-run");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final Duration orphanGrace;
+    private final int archiveAfterDays;
+
+    public UploadLifecycleService(FileBlobRepository fileBlobRepository,
+                                  PaymentProofRepository paymentProofRepository,
+                                  BlobStorageService blobStorageService,
+                                  ImageVariantService imageVariantService,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${uploads.lifecycle.orphan-grace:7d}") Duration orphanGrace,
+                                  @Value("${uploads.lifecycle.archive-after-days:90}") int archiveAfterDays,
+                                  @Value("${uploads.lifecycle.workers:4}") int workers) {
+        this.fileBlobRepository = fileBlobRepository;
+        this.paymentProofRepository = paymentProofRepository;
+        this.blobStorageService = blobStorageService;
+        this.imageVariantService = imageVariantService;
+        this.transactionManager = transactionManager;
+        this.orphanGrace = orphanGrace;
+        this.archiveAfterDays = archiveAfterDays;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "upload-lifecycle-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Hands the run to its own thread; it takes a while and would otherwise hold up every other scheduled job.
+     */
+    @Scheduled(cron = "${uploads.lifecycle.cron:0 15 4 * * *}")
+    public void scheduledRun() {
+        runner.execute(() -> {
+            try {
+                Map<String, Object> result = run();
+                log.info("Upload lifecycle run finished: {}", result);
+            } catch (RuntimeException e) {
+                log.error("Upload lifecycle run failed", e);
+            }
+        });
+    }
+
+    /**
+     * Runs every stage once. Returns the counts of what was done, or {@code skipped} if a run is already in progress.
+     */
+    public Map<String, Object> run() {
+        Map<String, Object> result = new HashMap<>();
+        if (!running.compareAndSet(false, true)) {
+            result.put("skipped", true);
+            return result;
+        }
+        try {
+            archiveVerifiedProofs(result);
+            sweepBlobs(result);
+            result.put("deletedTempFiles", sweepTempFiles());
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Returns a local copy of an archived proof by content hash, extracting it from its bundle
+     * if needed, or null if no archived proof has that content.
+     */
+    public Path restoreArchived(String contentHash) throws IOException {
+        PaymentProof proof = paymentProofRepository.findFirstByContentHashAndArchiveKeyIsNotNull(contentHash).orElse(null);
+        if (proof == null) {
+            return null;
+        }
+        Path bundle = blobStorageService.fetchArchive(proof.getArchiveKey());
+        if (bundle == null) {
+            log.warn("Archive bundle {} for payment proof {} is missing", proof.getArchiveKey(), proof.getId());
+            return null;
+        }
+
+        String entryName = Paths.get(proof.getFilePath()).getFileName().toString();
+        Path restoreDir = blobStorageService.blobRoot().resolve("tmp").resolve("restored");
+        Path target = restoreDir.resolve(entryName);
+        if (Files.isRegularFile(target)) {
+            // Keep a file that is still being used out of the temporary file sweep
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            return target;
+        }
+
+        try (ZipFile zip = new ZipFile(bundle.toFile())) {
+            ZipEntry entry = zip.getEntry(entryName);
+            if (entry == null) {
+                log.warn("Archive bundle {} has no entry {}", proof.getArchiveKey(), entryName);
+                return null;
+            }
+            Files.createDirectories(restoreDir);
+            Path temp = Files.createTempFile(restoreDir, "restore-", ".tmp");
+            try (InputStream input = zip.getInputStream(entry)) {
+                Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return target;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private void archiveVerifiedProofs(Map<String, Object> result) {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(archiveAfterDays);
+        int archivedProofs = 0;
+        int skippedProofs = 0;
+        int bundles = 0;
+        // Proofs whose file is missing stay unarchived, so page past them instead of re-reading them
+        long afterId = 0;
+
+        while (true) {
+            List<PaymentProof> batch = paymentProofRepository.findArchivable(cutoff, Order.OrderStatus.REJECTED,
+                    afterId, PageRequest.of(0, ARCHIVE_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+            try {
+                int archived = archiveBatch(batch);
+                skippedProofs += batch.size() - archived;
+                if (archived > 0) {
+                    archivedProofs += archived;
+                    bundles++;
+                }
+            } catch (IOException e) {
+                log.error("Failed to archive payment proofs starting at {}", batch.get(0).getId(), e);
+                break;
+            }
+        }
+
+        result.put("archivedProofs", archivedProofs);
+        result.put("archiveBundles", bundles);
+        result.put("unarchivableProofs", skippedProofs);
+    }
+
+    private int archiveBatch(List<PaymentProof> batch) throws IOException {
+        String bundleName = "proofs-" + LocalDateTime.now().format(BUNDLE_TIMESTAMP) + "-" + batch.get(0).getId() + ".zip";
+        Path tempDir = blobStorageService.blobRoot().resolve("tmp");
+        Files.createDirectories(tempDir);
+        Path bundle = Files.createTempFile(tempDir, "archive-", ".zip");
+
+        List<Long> archivedIds = new ArrayList<>();
+        try {
+            Set<String> entries = new HashSet<>();
+            try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(bundle))) {
+                for (PaymentProof proof : batch) {
+                    Path file = blobStorageService.localFile(Paths.get(proof.getFilePath()));
+                    if (file == null) {
+                        log.warn("Cannot archive payment proof {}: file {} is missing", proof.getId(), proof.getFilePath());
+                        continue;
+                    }
+                    String entryName = file.getFileName().toString();
+                    if (entries.add(entryName)) {
+                        zip.putNextEntry(new ZipEntry(entryName));
+                        Files.copy(file, zip);
+                        zip.closeEntry();
+                    }
+                    archivedIds.add(proof.getId());
+                }
+            }
+            if (archivedIds.isEmpty()) {
+                return 0;
+            }
+            blobStorageService.storeArchive(bundleName, bundle);
+        } finally {
+            Files.deleteIfExists(bundle);
+        }
+
+        // Only point the rows at the bundle once it is safely stored
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            for (PaymentProof proof : paymentProofRepository.findAllById(archivedIds)) {
+                proof.setArchiveKey(bundleName);
+                blobStorageService.release(proof.getContentHash());
+            }
+        });
+        log.info("Archived {} payment proofs into {}", archivedIds.size(), bundleName);
+        return archivedIds.size();
+    }
+
+    /**
+     * Reconciles and sweeps each of the 256 two-character hash prefixes as a separate task.
+     */
+    private void sweepBlobs(Map<String, Object> result) {
+        LocalDateTime cutoff = LocalDateTime.now().minus(orphanGrace);
+        AtomicInteger reconciled = new AtomicInteger();
+        AtomicInteger deleted = new AtomicInteger();
+        AtomicLong freedBytes = new AtomicLong();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int prefix = 0; prefix < 256; prefix++) {
+            String from = String.format("%02x", prefix);
+            // 'g' sorts after every hex digit, so it closes the last range
+            String to = prefix == 255 ? "g" : String.format("%02x", prefix + 1);
+            tasks.add(() -> {
+                reconciled.addAndGet(fileBlobRepository.reconcileRange(from, to));
+                for (Object[] orphan : fileBlobRepository.findOrphans(from, to, cutoff)) {
+                    if (deleteOrphan((String) orphan[0], (String) orphan[1], cutoff)) {
+                        deleted.incrementAndGet();
+                        freedBytes.addAndGet(((Number) orphan[2]).longValue());
+                    }
+                }
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.error("Blob sweep chunk failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        result.put("reconciledBlobs", reconciled.get());
+        result.put("deletedBlobs", deleted.get());
+        result.put("freedBytes", freedBytes.get());
+    }
+
+    /**
+     * Deletes the files while the deleted row is still locked, so an upload of the same content
+     * waits and then stores its file again instead of trusting one that is about to disappear.
+     * If a file cannot be deleted the row is kept and the blob is swept again next time.
+     */
+    private boolean deleteOrphan(String hash, String extension, LocalDateTime cutoff) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return Boolean.TRUE.equals(transaction.execute(status -> {
+            if (fileBlobRepository.deleteOrphan(hash, cutoff) == 0) {
+                return false;
+            }
+            Path original = blobStorageService.pathFor(hash, extension != null ? extension : "");
+            try {
+                for (ImageVariantService.Variant variant : ImageVariantService.Variant.values()) {
+                    blobStorageService.delete(imageVariantService.variantPath(original, variant));
+                }
+                blobStorageService.delete(original);
+            } catch (IOException e) {
+                log.warn("Could not delete all files of blob {}, keeping its row", hash, e);
+                status.setRollbackOnly();
+                return false;
+            }
+            return true;
+        }));
+    }
+
+    private int sweepTempFiles() {
+        Path tempDir = blobStorageService.blobRoot().resolve("tmp");
+        if (!Files.isDirectory(tempDir)) {
+            return 0;
+        }
+        FileTime cutoff = FileTime.from(Instant.now().minus(orphanGrace));
+        AtomicInteger deleted = new AtomicInteger();
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                try {
+                    if (Files.getLastModifiedTime(file).compareTo(cutoff) < 0 && Files.deleteIfExists(file)) {
+                        deleted.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    log.debug("Could not remove temporary file {}", file, e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to sweep temporary uploads in {}", tempDir, e);
+        }
+        return deleted.get();
+    }
+}
@@ -0,0 +1,67 @@
+-- Baseline schema: the six tables Hibernate created before migrations were introduced.
+-- Existing databases are baselined at this version and skip it, so it must not change.
+
+CREATE TABLE app_user (
+    id          BIGSERIAL PRIMARY KEY,
+    telegram_id BIGINT       NOT NULL UNIQUE,
+    username    VARCHAR(255),
+    first_name  VARCHAR(255),
+    last_name   VARCHAR(255),
+    phone       VARCHAR(255),
+    is_admin    BOOLEAN,
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6)
+);
+
+CREATE TABLE category (
+    id          BIGSERIAL PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    description VARCHAR(255),
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6)
+);
+
+CREATE TABLE product (
+    id          BIGSERIAL PRIMARY KEY,
+    name        VARCHAR(255)   NOT NULL,
+    description VARCHAR(255),
+    price       NUMERIC(10, 2) NOT NULL,
+    stock       INTEGER        NOT NULL,
+    category_id BIGINT REFERENCES category (id),
+    image_url   VARCHAR(255),
+    is_active   BOOLEAN,
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6)
+);
+
+CREATE TABLE "order" (
+    id               BIGSERIAL PRIMARY KEY,
+    user_id          BIGINT REFERENCES app_user (id),
+    customer_name    VARCHAR(255)   NOT NULL,
+    customer_phone   VARCHAR(255)   NOT NULL,
+    delivery_address VARCHAR(255)   NOT NULL,
+    total_amount     NUMERIC(10, 2) NOT NULL,
+    status           VARCHAR(255),
+    created_at       TIMESTAMP(6),
+    updated_at       TIMESTAMP(6)
+);
+
+CREATE TABLE order_item (
+    id          BIGSERIAL PRIMARY KEY,
+    order_id    BIGINT REFERENCES "order" (id),
+    product_id  BIGINT REFERENCES product (id),
+    quantity    INTEGER        NOT NULL,
+    unit_price  NUMERIC(10, 2) NOT NULL,
+    total_price NUMERIC(10, 2) NOT NULL,
+    created_at  TIMESTAMP(6)
+);
+
+CREATE TABLE payment_proof (
+    id          BIGSERIAL PRIMARY KEY,
+    order_id    BIGINT REFERENCES "order" (id),
+    file_path   VARCHAR(255) NOT NULL,
+    file_name   VARCHAR(255) NOT NULL,
+    uploaded_at TIMESTAMP(6),
+    verified_at TIMESTAMP(6),
+    verified_by BIGINT REFERENCES app_user (id)
+);
@@ -0,0 +1,68 @@
+-- Tables and columns added for the content-addressed uploads, payment proof checks and
+-- sales analytics. IF NOT EXISTS keeps this safe on databases that already got them from
+-- ddl-auto=update.
+
+ALTER TABLE product ADD COLUMN IF NOT EXISTS image_hash VARCHAR(64);
+
+ALTER TABLE payment_proof ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+ALTER TABLE payment_proof ADD COLUMN IF NOT EXISTS perceptual_hash BIGINT;
+ALTER TABLE payment_proof ADD COLUMN IF NOT EXISTS archive_key VARCHAR(255);
+
+CREATE TABLE IF NOT EXISTS blob (
+    hash       VARCHAR(64) PRIMARY KEY,
+    extension  VARCHAR(10),
+    size_bytes BIGINT  NOT NULL,
+    ref_count  INTEGER NOT NULL,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS daily_sales_rollup (
+    sales_date  DATE PRIMARY KEY,
+    order_count BIGINT         NOT NULL,
+    revenue     NUMERIC(14, 2) NOT NULL,
+    updated_at  TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS daily_product_sales_rollup (
+    sales_date  DATE           NOT NULL,
+    product_id  BIGINT         NOT NULL,
+    category_id BIGINT,
+    quantity    BIGINT         NOT NULL,
+    revenue     NUMERIC(14, 2) NOT NULL,
+    updated_at  TIMESTAMP(6),
+    PRIMARY KEY (sales_date, product_id)
+);
+
+CREATE TABLE IF NOT EXISTS daily_distinct_sketch (
+    sketch_date DATE        NOT NULL,
+    metric      VARCHAR(20) NOT NULL,
+    registers   BYTEA       NOT NULL,
+    updated_at  TIMESTAMP(6),
+    PRIMARY KEY (sketch_date, metric)
+);
+
+CREATE TABLE IF NOT EXISTS customer_lifetime (
+    user_id          BIGINT PRIMARY KEY,
+    cohort_month     DATE           NOT NULL,
+    first_paid_at    TIMESTAMP(6)   NOT NULL,
+    last_paid_at     TIMESTAMP(6)   NOT NULL,
+    paid_orders      BIGINT         NOT NULL,
+    lifetime_revenue NUMERIC(14, 2) NOT NULL,
+    updated_at       TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS cohort_summary (
+    cohort_month     DATE PRIMARY KEY,
+    customers        BIGINT         NOT NULL,
+    repeat_customers BIGINT         NOT NULL,
+    paid_orders      BIGINT         NOT NULL,
+    revenue          NUMERIC(14, 2) NOT NULL,
+    updated_at       TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS analytics_watermark (
+    job_name        VARCHAR(100) PRIMARY KEY,
+    processed_until TIMESTAMP(6) NOT NULL,
+    updated_at      TIMESTAMP(6)
+);
@@ -0,0 +1,73 @@
+-- Indexes for the access paths the repositories actually use; RepositoryQueryPlanTest checks
+-- that those queries no longer scan the large tables. Built concurrently so they can be applied
+-- to a live database; Flyway runs this migration outside a transaction.
+
+-- Order queues (findByStatusOrderByCreatedAt*) and per-status counts
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_order_status_created_at
+    ON "order" (status, created_at);
+
+-- Paid revenue by day: covering, so the statistics never touch the heap
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_order_paid_created_at
+    ON "order" (created_at) INCLUDE (total_amount)
+    WHERE status = 'PAID';
+
+-- Date range listings, counts and exports
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_order_created_at
+    ON "order" (created_at);
+
+-- Customer order history, newest first
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_order_user_created_at
+    ON "order" (user_id, created_at DESC);
+
+-- Incremental customer lifetime refresh
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_order_updated_at
+    ON "order" (updated_at)
+    WHERE user_id IS NOT NULL;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_order_item_order_id
+    ON order_item (order_id);
+
+-- Foreign key checks when deleting a category cascades to its products
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_order_item_product_id
+    ON order_item (product_id);
+
+-- Proofs of an order, including the one still awaiting verification
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_payment_proof_order_verified_at
+    ON payment_proof (order_id, verified_at);
+
+-- Verification queue, oldest first
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_payment_proof_pending
+    ON payment_proof (uploaded_at)
+    WHERE verified_at IS NULL;
+
+-- Duplicate detection and archive restores
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_payment_proof_content_hash
+    ON payment_proof (content_hash);
+
+-- Backlog of proofs still to be hashed for the similarity index
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_payment_proof_unhashed
+    ON payment_proof (id)
+    WHERE perceptual_hash IS NULL;
+
+-- Proofs still waiting to be archived
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_payment_proof_archivable
+    ON payment_proof (verified_at)
+    WHERE archive_key IS NULL AND content_hash IS NOT NULL;
+
+-- Category listings of active and in-stock products
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_product_category_active_stock
+    ON product (category_id, is_active, stock);
+
+-- Blob reference reconciliation
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_product_image_hash
+    ON product (image_hash)
+    WHERE is_active = true;
+
+-- Orphan sweep, scanned by hash range
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_blob_unreferenced
+    ON blob (hash, updated_at)
+    WHERE ref_count = 0;
+
+-- Cohort summary refresh for the affected months
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_customer_lifetime_cohort_month
+    ON customer_lifetime (cohort_month);
@@ -0,0 +1,9 @@
+-- Catalog imports upsert products by name, so names must be unique. Older duplicates get
+-- their id appended rather than being merged, since orders may reference either row.
+-- Not built concurrently: it has to run in the same transaction as the renames.
+
+UPDATE product p
+SET name = left(p.name, 230) || ' (' || p.id || ')'
+WHERE EXISTS (SELECT 1 FROM product q WHERE q.name = p.name AND q.id < p.id);
+
+CREATE UNIQUE INDEX uk_product_name ON product (name);
@@ -0,0 +1,110 @@
+package com.wristwatch.shop.repository;
+
+import com.wristwatch.shop.PostgresTestConfiguration;
+import com.wristwatch.shop.dto.ProductDto;
+import com.wristwatch.shop.entity.Category;
+import com.wristwatch.shop.entity.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the product list endpoints against N+1 selects: each list must be loaded,
+ * category name included, with a single statement.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PostgresTestConfiguration.class)
+class ProductRepositoryQueryCountTest {
+
+    private static final int CATEGORIES = 3;
+    private static final int PRODUCTS_PER_CATEGORY = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final List<Long> categoryIds = new ArrayList<>();
+    private final List<Long> productIds = new ArrayList<>();
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        for (int c = 0; c < CATEGORIES; c++) {
+            Category category = new Category();
+            category.setName("Category " + c);
+            entityManager.persist(category);
+            categoryIds.add(category.getId());
+
+            for (int p = 0; p < PRODUCTS_PER_CATEGORY; p++) {
+                Product product = new Product();
+                product.setName("Watch " + c + "-" + p);
+                product.setPrice(new BigDecimal("100.00"));
+                product.setStock(p);
+                product.setCategory(category);
+                entityManager.persist(product);
+                productIds.add(product.getId());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void activeProductsLoadInOneStatement() {
+        assertSingleStatement(() -> productRepository.findActiveProductDtos(), CATEGORIES * PRODUCTS_PER_CATEGORY);
+    }
+
+    @Test
+    void activeProductsByCategoryLoadInOneStatement() {
+        assertSingleStatement(() -> productRepository.findActiveProductDtosByCategory(categoryIds.get(0)),
+                PRODUCTS_PER_CATEGORY);
+    }
+
+    @Test
+    void availableProductsLoadInOneStatement() {
+        assertSingleStatement(() -> productRepository.findAvailableProductDtos(),
+                CATEGORIES * (PRODUCTS_PER_CATEGORY - 1));
+    }
+
+    @Test
+    void availableProductsByCategoryLoadInOneStatement() {
+        assertSingleStatement(() -> productRepository.findAvailableProductDtosByCategory(categoryIds.get(1)),
+                PRODUCTS_PER_CATEGORY - 1);
+    }
+
+    @Test
+    void productsByIdLoadInOneStatement() {
+        assertSingleStatement(() -> productRepository.findProductDtosByIdIn(productIds), productIds.size());
+    }
+
+    private void assertSingleStatement(Supplier<List<ProductDto>> query, int expectedSize) {
+        List<ProductDto> products = query.get();
+
+        assertThat(products).hasSize(expectedSize);
+        assertThat(products).allSatisfy(product -> assertThat(product.getCategoryName()).isNotNull());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,410 @@
+package com.wristwatch.shop.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wristwatch.shop.PostgresTestConfiguration;
+import com.wristwatch.shop.entity.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs each selective repository query against large, realistically distributed tables,
+ * captures the statements Hibernate sends together with their bound parameters, and fails
+ * if {@code EXPLAIN} shows a sequential scan over one of the large tables.
+ * <p>
+ * Queries that read most of a table by design are not listed: the full catalog listings and
+ * facet rows, the startup load of all perceptual hashes, the per-status totals and the
+ * nightly rollup backfills.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PostgresTestConfiguration.class, RepositoryQueryPlanTest.StatementCaptureConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RepositoryQueryPlanTest {
+
+    private static final int USERS = 20_000;
+    private static final int CATEGORIES = 200;
+    private static final int PRODUCTS = 20_000;
+    private static final int ORDERS = 200_000;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int BLOBS = 200_000;
+
+    private static final Set<String> LARGE_TABLES = Set.of("app_user", "product", "order", "order_item",
+            "payment_proof", "blob", "daily_product_sales_rollup", "customer_lifetime");
+
+    private static final String[] SEED_SQL = {
+            "INSERT INTO category (name, created_at, updated_at) " +
+            "SELECT 'Category ' || g, localtimestamp, localtimestamp FROM generate_series(1, " + CATEGORIES + ") g",
+
+            "INSERT INTO app_user (telegram_id, username, is_admin, created_at, updated_at) " +
+            "SELECT 1000000 + g, 'user' || g, g = 1, localtimestamp, localtimestamp " +
+            "FROM generate_series(1, " + USERS + ") g",
+
+            // Products arrive a brand at a time, so each category's rows sit close together
+            "INSERT INTO product (name, description, price, stock, category_id, image_hash, is_active, created_at, updated_at) " +
+            "SELECT 'Watch ' || g, 'Description ' || g, 100 + g % 900, g % 3, 1 + (g - 1) / " + (PRODUCTS / CATEGORIES) + ", " +
+            "CASE WHEN g % 2 = 0 THEN md5(g::text) || md5((g + 1)::text) END, g % 10 <> 0, localtimestamp, localtimestamp " +
+            "FROM generate_series(1, " + PRODUCTS + ") g",
+
+            // One order every five minutes over about two years; only the last two days are still open
+            "INSERT INTO \"order\" (user_id, customer_name, customer_phone, delivery_address, total_amount, status, created_at, updated_at) " +
+            "SELECT 1 + g % " + USERS + ", 'Customer ' || g, '+998900000000', 'Address ' || g, 50 + g % 500, " +
+            "CASE WHEN " + ORDERS + " - g < 576 THEN (CASE WHEN g % 2 = 0 THEN 'PENDING' ELSE 'AWAITING_VERIFICATION' END) " +
+            "WHEN g % 100 < 85 THEN 'PAID' WHEN g % 100 < 95 THEN 'CANCELLED' ELSE 'REJECTED' END, " +
+            "localtimestamp - (" + ORDERS + " - g) * interval '5 minutes', " +
+            "localtimestamp - (" + ORDERS + " - g) * interval '5 minutes' + interval '10 minutes' " +
+            "FROM generate_series(1, " + ORDERS + ") g",
+
+            "INSERT INTO order_item (order_id, product_id, quantity, unit_price, total_price, created_at) " +
+            "SELECT 1 + (g - 1) / " + ITEMS_PER_ORDER + ", 1 + (g * 7) % " + PRODUCTS + ", 1 + g % 3, 100, 100 * (1 + g % 3), localtimestamp " +
+            "FROM generate_series(1, " + ORDERS * ITEMS_PER_ORDER + ") g",
+
+            // Proofs older than 90 days are archived; a few are not hashed yet
+            "INSERT INTO payment_proof (order_id, file_path, file_name, content_hash, perceptual_hash, archive_key, uploaded_at, verified_at) " +
+            "SELECT o.id, 'uploads/blobs/proof.jpg', 'proof.jpg', md5(o.id::text) || md5((o.id + 1)::text), " +
+            "CASE WHEN o.id % 1000 <> 0 THEN o.id * 7919 END, " +
+            "CASE WHEN o.created_at < localtimestamp - interval '90 days' THEN 'archive/' || o.id END, " +
+            "o.created_at + interval '5 minutes', " +
+            "CASE WHEN o.status <> 'AWAITING_VERIFICATION' THEN o.created_at + interval '10 minutes' END " +
+            "FROM \"order\" o WHERE o.status <> 'PENDING' ORDER BY o.id",
+
+            "INSERT INTO blob (hash, extension, size_bytes, ref_count, created_at, updated_at) " +
+            "SELECT md5(g::text) || md5((g + 1)::text), 'jpg', 200000, CASE WHEN g % 50 = 0 THEN 0 ELSE 1 END, " +
+            "localtimestamp - interval '30 days', localtimestamp - interval '30 days' " +
+            "FROM generate_series(1, " + BLOBS + ") g",
+
+            "INSERT INTO daily_product_sales_rollup (sales_date, product_id, category_id, quantity, revenue, updated_at) " +
+            "SELECT current_date - d, p, 1 + (p - 1) / " + (PRODUCTS / CATEGORIES) + ", 1, 100, localtimestamp " +
+            "FROM generate_series(0, 729) d, generate_series(1, 200) p",
+
+            // Customers join over time, so cohorts follow user ids
+            "INSERT INTO customer_lifetime (user_id, cohort_month, first_paid_at, last_paid_at, paid_orders, lifetime_revenue, updated_at) " +
+            "SELECT g, CAST(date_trunc('month', current_date - (" + USERS + " - g) * 730 / " + USERS + ") AS date), " +
+            "localtimestamp, localtimestamp, 8, 800, localtimestamp FROM generate_series(1, " + USERS + ") g",
+
+            "VACUUM ANALYZE"
+    };
+
+    private static boolean seeded;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StatementCapture statementCapture;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private PaymentProofRepository paymentProofRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private FileBlobRepository fileBlobRepository;
+
+    @Autowired
+    private DailyProductSalesRollupRepository dailyProductSalesRollupRepository;
+
+    @Autowired
+    private CustomerLifetimeRepository customerLifetimeRepository;
+
+    @Autowired
+    private CohortSummaryRepository cohortSummaryRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void seed() {
+        if (seeded) {
+            return;
+        }
+        for (String sql : SEED_SQL) {
+            jdbcTemplate.execute(sql);
+        }
+        seeded = true;
+    }
+
+    @TestFactory
+    Stream<DynamicTest> selectiveQueriesUseIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = LocalDate.now();
+        long openOrderId = ORDERS - 15;
+        long proofId = 150_000;
+        String proofHash = jdbcTemplate.queryForObject("SELECT content_hash FROM payment_proof WHERE id = ?", String.class, proofId);
+        String blobHash = jdbcTemplate.queryForObject("SELECT hash FROM blob WHERE ref_count = 0 LIMIT 1", String.class);
+        List<Long> productIds = LongStream.rangeClosed(1000, 1049).boxed().toList();
+        List<Long> userIds = List.of(11L, 4_242L, 12_345L, 19_999L);
+
+        Stream<Case> cases = Stream.of(
+                new Case("AppUserRepository.findByTelegramId", () -> appUserRepository.findByTelegramId(1_004_242L)),
+                new Case("AppUserRepository.existsByTelegramIdAndIsAdminTrue", () -> appUserRepository.existsByTelegramIdAndIsAdminTrue(1_000_001L)),
+
+                new Case("OrderRepository.findByUserTelegramIdOrderByCreatedAtDesc", () -> orderRepository.findByUserTelegramIdOrderByCreatedAtDesc(1_004_242L)),
+                new Case("OrderRepository.findByStatusOrderByCreatedAtDesc", () -> orderRepository.findByStatusOrderByCreatedAtDesc(Order.OrderStatus.PENDING)),
+                new Case("OrderRepository.findByStatusOrderByCreatedAtAsc", () -> orderRepository.findByStatusOrderByCreatedAtAsc(Order.OrderStatus.AWAITING_VERIFICATION)),
+                new Case("OrderRepository.countByCreatedAtGreaterThanEqual", () -> orderRepository.countByCreatedAtGreaterThanEqual(now.minusDays(1))),
+                new Case("OrderRepository.sumPaidOrdersByDayBetween", () -> orderRepository.sumPaidOrdersByDayBetween(now.minusDays(7), now)),
+                new Case("OrderRepository.findOrdersBetweenDates", () -> orderRepository.findOrdersBetweenDates(now.minusDays(7), now)),
+
+                new Case("OrderItemRepository.findByOrderId", () -> orderItemRepository.findByOrderId(openOrderId)),
+                new Case("OrderItemRepository.findSalesLinesByOrderId", () -> orderItemRepository.findSalesLinesByOrderId(openOrderId)),
+                new Case("OrderItemRepository.findTopSellingProductsBetween", () -> orderItemRepository.findTopSellingProductsBetween(now.minusDays(1), now, PageRequest.of(0, 10))),
+
+                new Case("PaymentProofRepository.findByOrderId", () -> paymentProofRepository.findByOrderId(openOrderId)),
+                new Case("PaymentProofRepository.findByOrderIdAndVerifiedAtIsNull", () -> paymentProofRepository.findByOrderIdAndVerifiedAtIsNull(openOrderId)),
+                new Case("PaymentProofRepository.findByVerifiedAtIsNullOrderByUploadedAtAsc", () -> paymentProofRepository.findByVerifiedAtIsNullOrderByUploadedAtAsc()),
+                new Case("PaymentProofRepository.findByContentHashAndIdNot", () -> paymentProofRepository.findByContentHashAndIdNot(proofHash, proofId)),
+                new Case("PaymentProofRepository.findIdsWithoutPerceptualHash", () -> paymentProofRepository.findIdsWithoutPerceptualHash()),
+                new Case("PaymentProofRepository.findPerceptualHashesAfter", () -> paymentProofRepository.findPerceptualHashesAfter(proofId, PageRequest.of(0, 1000))),
+                new Case("PaymentProofRepository.findFirstUnhashedIdAfter", () -> paymentProofRepository.findFirstUnhashedIdAfter(proofId, now.minusHours(1))),
+                new Case("PaymentProofRepository.findArchivable", () -> paymentProofRepository.findArchivable(now.minusDays(90), Order.OrderStatus.REJECTED, 0L, PageRequest.of(0, 500))),
+                new Case("PaymentProofRepository.findFirstByContentHashAndArchiveKeyIsNotNull", () -> paymentProofRepository.findFirstByContentHashAndArchiveKeyIsNotNull(proofHash)),
+                new Case("PaymentProofRepository.setPerceptualHash", () -> paymentProofRepository.setPerceptualHash(proofId, 42L)),
+
+                new Case("ProductRepository.findByCategoryIdAndIsActiveTrue", () -> productRepository.findByCategoryIdAndIsActiveTrue(42L)),
+                new Case("ProductRepository.findAvailableProductsByCategory", () -> productRepository.findAvailableProductsByCategory(42L)),
+                new Case("ProductRepository.findActiveProductDtosByCategory", () -> productRepository.findActiveProductDtosByCategory(42L)),
+                new Case("ProductRepository.findAvailableProductDtosByCategory", () -> productRepository.findAvailableProductDtosByCategory(42L)),
+                new Case("ProductRepository.existsByName", () -> productRepository.existsByName("Watch 4242")),
+                new Case("ProductRepository.findIdsByNameIn", () -> productRepository.findIdsByNameIn(List.of("Watch 11", "Watch 4242"))),
+                new Case("ProductRepository.existsByImageHashAndIsActiveTrue", () -> productRepository.existsByImageHashAndIsActiveTrue(blobHash)),
+                new Case("ProductRepository.findExistingIds", () -> productRepository.findExistingIds(productIds)),
+                new Case("ProductRepository.findProductDtoById", () -> productRepository.findProductDtoById(1000L)),
+                new Case("ProductRepository.findProductDtosByIdIn", () -> productRepository.findProductDtosByIdIn(productIds)),
+                new Case("ProductRepository.findActiveFacetRowsByIdIn", () -> productRepository.findActiveFacetRowsByIdIn(productIds)),
+
+                new Case("FileBlobRepository.acquire", () -> fileBlobRepository.acquire(blobHash)),
+                new Case("FileBlobRepository.reconcileRange", () -> fileBlobRepository.reconcileRange("00", "01")),
+                new Case("FileBlobRepository.findOrphans", () -> fileBlobRepository.findOrphans("00", "01", now.minusDays(7))),
+                new Case("FileBlobRepository.deleteOrphan", () -> fileBlobRepository.deleteOrphan(blobHash, now.minusDays(7))),
+
+                new Case("DailyProductSalesRollupRepository.findQuantitiesSince", () -> dailyProductSalesRollupRepository.findQuantitiesSince(today.minusDays(1))),
+
+                new Case("CustomerLifetimeRepository.findUserIdsWithOrdersChangedBetween", () -> customerLifetimeRepository.findUserIdsWithOrdersChangedBetween(now.minusHours(1), now)),
+                new Case("CustomerLifetimeRepository.findCohortMonthsByUserIdIn", () -> customerLifetimeRepository.findCohortMonthsByUserIdIn(userIds)),
+                new Case("CustomerLifetimeRepository.deleteByUserIdIn", () -> customerLifetimeRepository.deleteByUserIdIn(userIds)),
+                new Case("CustomerLifetimeRepository.insertFromOrders", () -> customerLifetimeRepository.insertFromOrders(userIds)),
+                new Case("CohortSummaryRepository.insertFromCustomers", () -> cohortSummaryRepository.insertFromCustomers(List.of(today.withDayOfMonth(1).minusMonths(6))))
+        );
+
+        return cases.map(c -> DynamicTest.dynamicTest(c.name(), () -> assertNoSequentialScans(c)));
+    }
+
+    private void assertNoSequentialScans(Case c) {
+        List<CapturedStatement> statements = capture(c.invocation());
+        assertThat(statements).as("statements issued by %s", c.name()).isNotEmpty();
+
+        for (CapturedStatement statement : statements) {
+            JsonNode plan = explain(statement);
+            List<String> scanned = new ArrayList<>();
+            collectSequentialScans(plan, scanned);
+            if (!scanned.isEmpty()) {
+                fail(c.name() + " scans " + scanned + " sequentially:\n" + statement.sql() + "\n" + plan.toPrettyString());
+            }
+        }
+    }
+
+    /**
+     * Runs the invocation in a transaction that is rolled back, so modifying queries leave the seed intact.
+     */
+    private List<CapturedStatement> capture(Runnable invocation) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return transaction.execute(status -> {
+            status.setRollbackOnly();
+            statementCapture.start();
+            try {
+                invocation.run();
+            } finally {
+                statementCapture.stop();
+            }
+            return statementCapture.drain();
+        });
+    }
+
+    private JsonNode explain(CapturedStatement statement) {
+        String json = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + statement.sql())) {
+                for (Binding binding : statement.bindings()) {
+                    binding.applyTo(explain);
+                }
+                try (ResultSet rs = explain.executeQuery()) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            }
+        });
+        try {
+            return objectMapper.readTree(json).get(0).get("Plan");
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable plan: " + json, e);
+        }
+    }
+
+    private void collectSequentialScans(JsonNode node, List<String> scanned) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            String relation = node.path("Relation Name").asText();
+            if (LARGE_TABLES.contains(relation)) {
+                scanned.add(relation);
+            }
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSequentialScans(child, scanned);
+        }
+    }
+
+    private record Case(String name, Runnable invocation) {
+    }
+
+    record CapturedStatement(String sql, List<Binding> bindings) {
+    }
+
+    record Binding(Method setter, Object[] args) {
+        void applyTo(PreparedStatement statement) throws SQLException {
+            invoke(statement, setter, args);
+        }
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class StatementCaptureConfiguration {
+
+        @Bean
+        static StatementCapture statementCapture() {
+            return new StatementCapture();
+        }
+    }
+
+    /**
+     * Wraps the data source so that, while capturing, every executed prepared statement is
+     * recorded with the parameter setters that were called on it.
+     */
+    static class StatementCapture implements BeanPostProcessor {
+
+        private final List<CapturedStatement> captured = new CopyOnWriteArrayList<>();
+        private volatile boolean capturing;
+
+        void start() {
+            captured.clear();
+            capturing = true;
+        }
+
+        void stop() {
+            capturing = false;
+        }
+
+        List<CapturedStatement> drain() {
+            List<CapturedStatement> statements = new ArrayList<>(captured);
+            captured.clear();
+            return statements;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)) {
+                return new DelegatingDataSource(dataSource) {
+                    @Override
+                    public Connection getConnection() throws SQLException {
+                        return wrap(super.getConnection());
+                    }
+
+                    @Override
+                    public Connection getConnection(String username, String password) throws SQLException {
+                        return wrap(super.getConnection(username, password));
+                    }
+                };
+            }
+            return bean;
+        }
+
+        private Connection wrap(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")) {
+                            return recording(statement, (String) args[0]);
+                        }
+                        return result;
+                    });
+        }
+
+        private PreparedStatement recording(PreparedStatement statement, String sql) {
+            List<Binding> bindings = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.equals("clearParameters")) {
+                            bindings.clear();
+                        } else if (name.startsWith("set") && args != null && args.length >= 2
+                                && method.getParameterTypes()[0] == int.class) {
+                            bindings.add(new Binding(method, args.clone()));
+                        } else if (capturing && name.startsWith("execute") && !name.equals("executeBatch")) {
+                            captured.add(new CapturedStatement(sql, List.copyOf(bindings)));
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws SQLException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getTargetException() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (e.getTargetException() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getTargetException());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.wristwatch.shop.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Eviction against a local directory standing in for the remote store.
+ */
+class CachingBlobStoreTest {
+
+    private static final byte[] CONTENT = new byte[8];
+
+    @TempDir
+    private Path remoteRoot;
+
+    @TempDir
+    private Path cacheRoot;
+
+    @Test
+    void keepsRecentlyFetchedFilesOverTheLimit() throws IOException {
+        CachingBlobStore store = new CachingBlobStore(remote(), cacheRoot, 10, Duration.ofHours(1));
+
+        Path first = store.fetch("aa/bb/first.jpg");
+        Path second = store.fetch("aa/bb/second.jpg");
+
+        // A response may still be streaming the first file
+        assertThat(first).isRegularFile();
+        assertThat(second).isRegularFile();
+        assertThat(store.getMetrics()).containsEntry("bytes", 16L);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedFilesOncePinExpires() throws IOException {
+        CachingBlobStore store = new CachingBlobStore(remote(), cacheRoot, 10, Duration.ZERO);
+
+        Path first = store.fetch("aa/bb/first.jpg");
+        Path second = store.fetch("aa/bb/second.jpg");
+
+        assertThat(first).doesNotExist();
+        assertThat(second).isRegularFile();
+        assertThat(store.getMetrics()).containsEntry("bytes", 8L);
+    }
+
+    private LocalBlobStore remote() throws IOException {
+        for (String name : new String[]{"first.jpg", "second.jpg"}) {
+            Path file = remoteRoot.resolve("aa/bb").resolve(name);
+            Files.createDirectories(file.getParent());
+            Files.write(file, CONTENT);
+        }
+        return new LocalBlobStore(remoteRoot);
+    }
+}
@@ -0,0 +1,160 @@
+package com.wristwatch.shop.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the S3 store against MinIO, the S3-compatible server the {@code storage.s3.endpoint}
+ * setting is meant for, configured the same way {@code BlobStoreConfig} does.
+ */
+@Testcontainers
+class S3BlobStoreTest {
+
+    private static final String BUCKET = "blobs";
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    @Container
+    private static final MinIOContainer MINIO = new MinIOContainer("minio/minio:RELEASE.2023-09-04T19-57-37Z");
+
+    private static S3Client s3Client;
+    private static S3Presigner presigner;
+
+    @TempDir
+    private Path tempDir;
+
+    @BeforeAll
+    static void connect() {
+        URI endpoint = URI.create(MINIO.getS3URL());
+        StaticCredentialsProvider credentials = StaticCredentialsProvider.create(
+                AwsBasicCredentials.create(MINIO.getUserName(), MINIO.getPassword()));
+        S3Configuration pathStyle = S3Configuration.builder().pathStyleAccessEnabled(true).build();
+
+        s3Client = S3Client.builder()
+                .region(Region.US_EAST_1)
+                .credentialsProvider(credentials)
+                .endpointOverride(endpoint)
+                .serviceConfiguration(pathStyle)
+                .build();
+        presigner = S3Presigner.builder()
+                .region(Region.US_EAST_1)
+                .credentialsProvider(credentials)
+                .endpointOverride(endpoint)
+                .serviceConfiguration(pathStyle)
+                .build();
+        s3Client.createBucket(builder -> builder.bucket(BUCKET));
+    }
+
+    @AfterAll
+    static void disconnect() {
+        presigner.close();
+        s3Client.close();
+    }
+
+    @Test
+    void storesAndReadsSmallObject() throws IOException {
+        S3BlobStore store = store("shop/");
+        byte[] content = randomBytes(1024);
+
+        store.put("ab/cd/small.jpg", write("small.jpg", content), "image/jpeg");
+
+        assertThat(store.exists("ab/cd/small.jpg")).isTrue();
+        try (InputStream input = store.open("ab/cd/small.jpg")) {
+            assertThat(input.readAllBytes()).isEqualTo(content);
+        }
+        HeadObjectResponse head = s3Client.headObject(builder -> builder.bucket(BUCKET).key("shop/ab/cd/small.jpg"));
+        assertThat(head.contentType()).isEqualTo("image/jpeg");
+        assertThat(head.contentLength()).isEqualTo(content.length);
+    }
+
+    @Test
+    void uploadsLargeObjectInParts() throws IOException {
+        S3BlobStore store = store("");
+        byte[] content = randomBytes(PART_SIZE * 2 + 123);
+
+        store.put("ef/01/large.bin", write("large.bin", content), "application/octet-stream");
+
+        Path fetched = store.fetch("ef/01/large.bin");
+        assertThat(fetched).isNotNull();
+        assertThat(Files.readAllBytes(fetched)).isEqualTo(content);
+        // Multipart ETags end in the number of parts
+        HeadObjectResponse head = s3Client.headObject(builder -> builder.bucket(BUCKET).key("ef/01/large.bin"));
+        assertThat(head.eTag()).endsWith("-3\"");
+    }
+
+    @Test
+    void reportsMissingObjects() throws IOException {
+        S3BlobStore store = store("");
+
+        assertThat(store.exists("00/00/missing.jpg")).isFalse();
+        assertThat(store.fetch("00/00/missing.jpg")).isNull();
+        assertThatThrownBy(() -> store.open("00/00/missing.jpg")).isInstanceOf(NoSuchFileException.class);
+        try (var spooled = Files.list(tempDir.resolve("spool"))) {
+            assertThat(spooled).isEmpty();
+        }
+    }
+
+    @Test
+    void deletesObjects() throws IOException {
+        S3BlobStore store = store("");
+        store.put("12/34/deleted.png", write("deleted.png", randomBytes(64)), "image/png");
+
+        store.delete("12/34/deleted.png");
+
+        assertThat(store.exists("12/34/deleted.png")).isFalse();
+        // Deleting again is not an error
+        store.delete("12/34/deleted.png");
+    }
+
+    @Test
+    void presignedUrlReadsObjectWithoutCredentials() throws IOException {
+        S3BlobStore store = store("shop/");
+        byte[] content = randomBytes(256);
+        store.put("56/78/shared.jpg", write("shared.jpg", content), "image/jpeg");
+
+        URL url = store.presign("56/78/shared.jpg", Duration.ofMinutes(5)).orElseThrow();
+
+        assertThat(url.getPath()).isEqualTo("/" + BUCKET + "/shop/56/78/shared.jpg");
+        try (InputStream input = url.openStream()) {
+            assertThat(input.readAllBytes()).isEqualTo(content);
+        }
+    }
+
+    private S3BlobStore store(String prefix) {
+        return new S3BlobStore(s3Client, presigner, BUCKET, prefix, PART_SIZE, tempDir.resolve("spool"));
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(name), content);
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
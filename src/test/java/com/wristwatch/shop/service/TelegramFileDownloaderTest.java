@@ -0,0 +1,222 @@
+package com.wristwatch.shop.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Points the downloader at a local stand-in for the Telegram file endpoint, configured through
+ * the same base URL as {@code telegram.files.base-url}, and scripts its responses per attempt.
+ */
+class TelegramFileDownloaderTest {
+
+    private static final String TOKEN = "123:abc";
+    private static final String FILE_PATH = "photos/file_1.jpg";
+    private static final byte[] CONTENT = "jpeg bytes".getBytes(StandardCharsets.UTF_8);
+    private static final Duration READ_TIMEOUT = Duration.ofMillis(300);
+
+    /**
+     * One scripted reply of the stand-in server.
+     */
+    @FunctionalInterface
+    private interface Reply {
+        void send(HttpExchange exchange) throws IOException;
+    }
+
+    private final List<Reply> replies = new CopyOnWriteArrayList<>();
+    private final List<String> requestedPaths = new CopyOnWriteArrayList<>();
+    private final AtomicInteger attempts = new AtomicInteger();
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/file", exchange -> {
+            requestedPaths.add(exchange.getRequestURI().getPath());
+            int attempt = attempts.getAndIncrement();
+            try {
+                replies.get(Math.min(attempt, replies.size() - 1)).send(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        // Slow replies must not hold up the retries that follow them
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void downloadsFileFromBotPath() throws IOException {
+        replies.add(TelegramFileDownloaderTest::ok);
+
+        byte[] body = downloader(3).download(TOKEN, FILE_PATH, InputStream::readAllBytes);
+
+        assertThat(body).isEqualTo(CONTENT);
+        assertThat(requestedPaths).containsExactly("/file/bot" + TOKEN + "/" + FILE_PATH);
+    }
+
+    @Test
+    void waitsForRetryAfterWhenRateLimited() throws IOException {
+        replies.add(exchange -> {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            status(exchange, 429);
+        });
+        replies.add(TelegramFileDownloaderTest::ok);
+
+        long started = System.nanoTime();
+        byte[] body = downloader(3).download(TOKEN, FILE_PATH, InputStream::readAllBytes);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        assertThat(body).isEqualTo(CONTENT);
+        assertThat(attempts).hasValue(2);
+        // The backoff alone would have retried after a few milliseconds
+        assertThat(elapsed).isGreaterThanOrEqualTo(Duration.ofMillis(950));
+    }
+
+    @Test
+    void retriesServerErrorsUntilSuccess() throws IOException {
+        replies.add(exchange -> status(exchange, 502));
+        replies.add(exchange -> status(exchange, 503));
+        replies.add(TelegramFileDownloaderTest::ok);
+
+        byte[] body = downloader(4).download(TOKEN, FILE_PATH, InputStream::readAllBytes);
+
+        assertThat(body).isEqualTo(CONTENT);
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void givesUpOnServerErrorsAfterMaxAttempts() {
+        replies.add(exchange -> status(exchange, 500));
+
+        assertThatThrownBy(() -> downloader(3).download(TOKEN, FILE_PATH, InputStream::readAllBytes))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("HTTP 500");
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        replies.add(exchange -> status(exchange, 404));
+        replies.add(TelegramFileDownloaderTest::ok);
+
+        assertThatThrownBy(() -> downloader(4).download(TOKEN, FILE_PATH, InputStream::readAllBytes))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("HTTP 404");
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void retriesAfterReadTimeout() throws IOException {
+        replies.add(exchange -> {
+            sleep(READ_TIMEOUT.multipliedBy(3));
+            ok(exchange);
+        });
+        replies.add(TelegramFileDownloaderTest::ok);
+
+        byte[] body = downloader(3).download(TOKEN, FILE_PATH, InputStream::readAllBytes);
+
+        assertThat(body).isEqualTo(CONTENT);
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    void failsWithTimeoutWhenEveryAttemptIsTooSlow() {
+        replies.add(exchange -> {
+            sleep(READ_TIMEOUT.multipliedBy(3));
+            ok(exchange);
+        });
+
+        assertThatThrownBy(() -> downloader(2).download(TOKEN, FILE_PATH, InputStream::readAllBytes))
+                .isInstanceOf(HttpTimeoutException.class);
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    void retriesWhenBodyStallsAfterHeaders() throws IOException {
+        replies.add(TelegramFileDownloaderTest::stallMidBody);
+        replies.add(TelegramFileDownloaderTest::ok);
+
+        byte[] body = downloader(3).download(TOKEN, FILE_PATH, InputStream::readAllBytes);
+
+        assertThat(body).isEqualTo(CONTENT);
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    void failsWithTimeoutWhenBodyKeepsStalling() {
+        replies.add(TelegramFileDownloaderTest::stallMidBody);
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> downloader(2).download(TOKEN, FILE_PATH, InputStream::readAllBytes))
+                .isInstanceOf(HttpTimeoutException.class);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        assertThat(attempts).hasValue(2);
+        // The stand-in stalls for far longer; each attempt gives up after about the read timeout
+        assertThat(elapsed).isLessThan(READ_TIMEOUT.multipliedBy(8));
+    }
+
+    private TelegramFileDownloader downloader(int maxAttempts) {
+        String baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/file/";
+        return new TelegramFileDownloader(baseUrl, Duration.ofSeconds(2), READ_TIMEOUT, maxAttempts,
+                Duration.ofMillis(10), Duration.ofSeconds(5), 2);
+    }
+
+    private static void ok(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, CONTENT.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(CONTENT);
+        }
+    }
+
+    /**
+     * Sends the headers and half of the body, then stops sending without closing the connection.
+     */
+    private static void stallMidBody(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, CONTENT.length);
+        OutputStream output = exchange.getResponseBody();
+        output.write(CONTENT, 0, CONTENT.length / 2);
+        output.flush();
+        sleep(READ_TIMEOUT.multipliedBy(20));
+    }
+
+    private static void status(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}